@@ -0,0 +1,156 @@
+package main;
+
+/**
+ * Generates independent Chaos Game points from random addresses.
+ * <p>
+ * Applying a group of D maps is {@code p -> s^D p + T}, where the offset
+ * {@code T} depends only on the D selected attractors (see {@link Walker}).
+ * The walker precomputes {@code T} for every group of D selections in one
+ * table, and a point with a random K-digit address is then a short sum of
+ * table lookups:
+ * </p>
+ * <pre>
+ * p = T[i0] + s^D T[i1] + s^2D T[i2] + ... + s^K a0
+ * </pre>
+ * <p>
+ * K is chosen so that all points sharing the address lie within 1/1024 of a
+ * cell, so the cells hit are the same as for a long walk. The table is kept
+ * small enough to stay in cache. Unlike
+ * {@link ChaosWalker}, a point does not depend on the previous one: there is
+ * no loop-carried state besides the random source, so the iterations can be
+ * pipelined, vectorized or split between threads freely.
+ * </p>
+ * <p>
+ * The address digits are drawn uniformly, so only the unrestricted game can
+ * be sampled.
+ * </p>
+ */
+class AddressWalker implements Walker {
+	private static final int MAX_TABLE_SIZE = 1 << 12;
+	private static final double ADDRESS_CELL_SIZE = 1.0 / 1024;
+
+	private final AttractorIndexSampler groupSampler;
+	private final double[] offsetX;
+	private final double[] offsetY;
+	private final int[] recentAttractor;
+	private final double[] groupScale;
+	private final double tailX;
+	private final double tailY;
+	private final int cellWidth;
+	private final int cellHeight;
+	private final AttractorColors attractorColors;
+
+	/**
+	 * Creates a walker for the engine's current configuration.
+	 *
+	 * @param engine the engine providing attractors and ratio
+	 * @param random the walker's own random source
+	 * @throws IllegalArgumentException if the engine's configuration has restrictions
+	 */
+	AddressWalker(ChaosGameEngine engine, RandomSource random) {
+		if (!engine.getTransitionTable().isUnrestricted()) {
+			throw new IllegalArgumentException("Only unrestricted configurations can be sampled by address");
+		}
+
+		double[] attractorX = engine.getAttractorX();
+		double[] attractorY = engine.getAttractorY();
+		double ratio = engine.getRatio();
+		double s = 1 - ratio;
+		int numPoints = attractorX.length;
+		this.cellWidth = engine.getCellWidth();
+		this.cellHeight = engine.getCellHeight();
+		this.attractorColors = new AttractorColors(numPoints);
+
+		// Digits per table lookup: as many as fit in the table
+		int digits = 1;
+		int tableSize = numPoints;
+		while ((long) tableSize * numPoints <= MAX_TABLE_SIZE) {
+			digits++;
+			tableSize *= numPoints;
+		}
+
+		// Offsets of every group, the most recent selection in the lowest digit
+		double[] previousX = new double[1];
+		double[] previousY = new double[1];
+		for (int level = 0, count = 1; level < digits; level++, count *= numPoints) {
+			double[] nextX = new double[count * numPoints];
+			double[] nextY = new double[count * numPoints];
+			for (int i = 0; i < count; i++) {
+				for (int a = 0; a < numPoints; a++) {
+					nextX[i * numPoints + a] = ratio * attractorX[a] + s * previousX[i];
+					nextY[i * numPoints + a] = ratio * attractorY[a] + s * previousY[i];
+				}
+			}
+			previousX = nextX;
+			previousY = nextY;
+		}
+		offsetX = previousX;
+		offsetY = previousY;
+		recentAttractor = new int[tableSize];
+		for (int i = 0; i < tableSize; i++) {
+			recentAttractor[i] = i % numPoints;
+		}
+
+		// Enough groups for the addressed polygons to shrink below the cell limit
+		double size = 0;
+		for (int i = 0; i < numPoints; i++) {
+			for (int j = 0; j < numPoints; j++) {
+				size = Math.max(size, Math.hypot(attractorX[i] - attractorX[j], attractorY[i] - attractorY[j]));
+			}
+		}
+		double scaleD = Math.pow(s, digits);
+		int groups = 1;
+		double scale = scaleD;
+		while (size * scale > ADDRESS_CELL_SIZE) {
+			groups++;
+			scale *= scaleD;
+		}
+		groupScale = new double[groups];
+		groupScale[0] = 1;
+		for (int g = 1; g < groups; g++) {
+			groupScale[g] = groupScale[g - 1] * scaleD;
+		}
+
+		// Attractor 0 is a fixed point of its own map, so it lies on the fractal
+		tailX = scale * attractorX[0];
+		tailY = scale * attractorY[0];
+
+		groupSampler = new AttractorIndexSampler(random, tableSize);
+	}
+
+	/**
+	 * Generates a batch of independent points.
+	 *
+	 * @param iterations   number of points to generate
+	 * @param frameCounter current frame number, used to rotate attractor colors
+	 * @param sink         receives the plotted cells
+	 */
+	@Override
+	public void walk(int iterations, int frameCounter, PlotSink sink) {
+		final double[] ox = offsetX;
+		final double[] oy = offsetY;
+		final int[] recent = recentAttractor;
+		final double[] scales = groupScale;
+		final int[] colors = attractorColors.forFrame(frameCounter);
+		final AttractorIndexSampler sampler = groupSampler;
+
+		for (int iteration = 0; iteration < iterations; iteration++) {
+			// The first group holds the most recent selection, which gives the color
+			int group = sampler.next();
+			int color = colors[recent[group]];
+			double px = ox[group] + tailX;
+			double py = oy[group] + tailY;
+			for (int g = 1; g < scales.length; g++) {
+				group = sampler.next();
+				px += scales[g] * ox[group];
+				py += scales[g] * oy[group];
+			}
+
+			int x = (int) px;
+			int y = (int) py;
+			if (x >= 0 && x < cellWidth && y >= 0 && y < cellHeight) {
+				sink.plot(x, y, color);
+			}
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package main;
+
+/**
+ * The palette index of every attractor, rotating every 500 frames.
+ * <p>
+ * Each walker keeps an instance of its own, so walkers on different threads
+ * never share the table. {@link #forFrame(int)} only refills it when the frame
+ * counter enters a new color generation, which keeps the per-batch cost to a
+ * division.
+ * </p>
+ */
+final class AttractorColors {
+	private static final int FRAMES_PER_GENERATION = 500;
+
+	private final int[] colors;
+	private int generation = -1;
+
+	/**
+	 * Creates a color table for a number of attractors.
+	 *
+	 * @param attractors number of attractors
+	 */
+	AttractorColors(int attractors) {
+		this.colors = new int[attractors];
+	}
+
+	/**
+	 * Returns the colors for a frame, refreshing them when the frame counter
+	 * entered a new color generation. The returned array is reused.
+	 *
+	 * @param frameCounter current frame number
+	 * @return one palette index per attractor
+	 */
+	int[] forFrame(int frameCounter) {
+		int current = frameCounter / FRAMES_PER_GENERATION;
+		if (current != generation) {
+			generation = current;
+			fill(frameCounter, colors);
+		}
+		return colors;
+	}
+
+	/**
+	 * Fills the palette index of every attractor for a frame.
+	 *
+	 * @param frameCounter current frame number
+	 * @param colors       receives one palette index per attractor
+	 */
+	static void fill(int frameCounter, int[] colors) {
+		int generation = frameCounter / FRAMES_PER_GENERATION;
+		colors[0] = generation % 254 + 1;
+		for (int i = 1; i < colors.length; i++) {
+			colors[i] = (colors[i - 1] + 1) % 254 + 1;
+		}
+	}
+}
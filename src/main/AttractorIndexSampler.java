@@ -0,0 +1,81 @@
+package main;
+
+/**
+ * Extracts many small random indices from each 64-bit random draw.
+ * <p>
+ * The last draw is kept as a 64-bit binary fraction. An index below
+ * {@code bound} is its integer part after multiplying by {@code bound}, and
+ * the fractional part left over is used for the next index, like digits
+ * taken off a number in base {@code bound}. Each index costs about
+ * log2(bound) bits:
+ * <ul>
+ * <li>Power-of-two bounds are exact bit extraction, for example 32 indices
+ * per draw for 4 attractors</li>
+ * <li>Other bounds keep at least 32 unused bits in reserve, so the bias of
+ * every index stays below bound / 2^32 (20 indices per draw for 3
+ * attractors)</li>
+ * </ul>
+ * There is no rejection loop and no floating-point arithmetic.
+ * </p>
+ */
+class AttractorIndexSampler {
+	private static final int RESERVE_BITS = 32;
+
+	private final RandomSource source;
+	private final int bound;
+	private final int digitsPerDraw;
+	private long fraction;
+	private int digitsLeft;
+
+	/**
+	 * Creates a sampler of indices below a fixed bound.
+	 *
+	 * @param source the random source, owned by this sampler's thread
+	 * @param bound  number of possible indices
+	 * @throws IllegalArgumentException if bound is not positive
+	 */
+	public AttractorIndexSampler(RandomSource source, int bound) {
+		if (bound <= 0) {
+			throw new IllegalArgumentException("Bound must be positive");
+		}
+
+		this.source = source;
+		this.bound = bound;
+		this.digitsPerDraw = digitsPerDraw(bound);
+	}
+
+	/**
+	 * Returns how many indices below a bound are extracted from one draw.
+	 *
+	 * @param bound number of possible indices
+	 * @return the number of indices per 64-bit draw
+	 */
+	static int digitsPerDraw(int bound) {
+		if (bound == 1) {
+			return Integer.MAX_VALUE;
+		}
+		if ((bound & (bound - 1)) == 0) {
+			return 64 / Integer.numberOfTrailingZeros(bound);
+		}
+		double bitsPerDigit = Math.log(bound) / Math.log(2);
+		return Math.max(1, (int) ((64 - RESERVE_BITS) / bitsPerDigit));
+	}
+
+	/**
+	 * Returns a uniformly distributed index.
+	 *
+	 * @return an index in [0, bound)
+	 */
+	public int next() {
+		if (digitsLeft == 0) {
+			fraction = source.nextLong();
+			digitsLeft = digitsPerDraw;
+		}
+		digitsLeft--;
+
+		// Unsigned high word of fraction * bound is the next digit
+		long f = fraction;
+		fraction = f * bound;
+		return (int) (Math.multiplyHigh(f, bound) + ((f >> 63) & bound));
+	}
+}
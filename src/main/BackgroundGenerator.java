@@ -0,0 +1,451 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the Chaos Game continuously on dedicated threads.
+ * <p>
+ * Each worker thread advances its own {@link Walker}, with its own
+ * {@link RandomSource}, start point and burn-in, and plots into its own
+ * private {@link PlotBuffer}. About every 20 ms the worker merges its buffer
+ * into the engine's cell data itself, locking one row of tiles at a time, and
+ * hands the changed cells to the consuming thread (the JavaFX Application
+ * Thread in the application) through a lock-free
+ * single-producer/single-consumer {@link HandOffRing}. The walkers therefore
+ * share no cells and take no lock while plotting, the merge work is spread
+ * over the workers, and the consumer only collects dirty regions without
+ * ever waiting for a worker, so throughput scales with the number of cores
+ * and is decoupled from the frame rate.
+ * </p>
+ * <p>
+ * In partitioned mode every worker owns a band of rows of the canvas instead
+ * and runs a {@link TileWalker} that only plots there. As no other thread
+ * writes its cells, the worker stores them directly into the engine's cell
+ * data, without a private buffer, atomics or locks on the plot path; the changed
+ * cells of every batch are handed to the consumer once per batch. Only
+ * unrestricted configurations without density counting can be partitioned;
+ * the others fall back to buffered walkers.
+ * </p>
+ * <p>
+ * The engine must not be reconfigured or reinitialized while the generator
+ * is running; call {@link #stop()} first.
+ * </p>
+ *
+ * @see ChaosGameEngine
+ */
+class BackgroundGenerator {
+	private static final int BATCH_SIZE = 4096;
+	private static final long MERGE_INTERVAL_NANOS = 20_000_000;
+	private static final int BATCHES_PER_WORKER = 4;
+
+	private final ChaosGameEngine engine;
+	private final int cellWidth;
+	private int walkerCount = 1;
+	private boolean partitioned;
+	private volatile boolean running;
+	private volatile boolean paused;
+	// Counted down by every worker once it has parked for the current pause
+	private volatile CountDownLatch parked = new CountDownLatch(0);
+	private volatile int frameCounter;
+	private Worker[] workers = new Worker[0];
+	// One lock per row of plot buffer tiles, taken while merging
+	private Object[] rowLocks = new Object[0];
+
+	/**
+	 * The changes of a worker's cells, handed to the consumer as one unit.
+	 */
+	private final class ChangeBatch {
+		final DirtyRegion cells;
+		int points;
+		int maxDensity;
+
+		ChangeBatch() {
+			this.cells = new DirtyRegion(cellWidth, engine.getCellHeight());
+			cells.clear();
+		}
+
+		boolean isEmpty() {
+			return points == 0 && cells.isEmpty();
+		}
+	}
+
+	/**
+	 * A worker thread and the batches of changed cells it hands over to the
+	 * consumer.
+	 * <p>
+	 * Every worker owns {@value #BATCHES_PER_WORKER} batches. Filled batches
+	 * travel to the consumer through one lock-free ring and come back empty
+	 * through another, so neither thread ever waits for the other. When the
+	 * consumer has not returned a batch yet, the worker keeps adding to the
+	 * one it is filling.
+	 * </p>
+	 */
+	private abstract class Worker {
+		Thread thread;
+		final HandOffRing<ChangeBatch> published = new HandOffRing<>(BATCHES_PER_WORKER);
+		final HandOffRing<ChangeBatch> recycled = new HandOffRing<>(BATCHES_PER_WORKER);
+		// The batch being filled, worker thread only
+		ChangeBatch current;
+		// The last pause this worker reported as parked, worker thread only
+		CountDownLatch reported;
+
+		Worker() {
+			// Created on the consumer thread, which produces the recycled batches
+			current = new ChangeBatch();
+			for (int i = 1; i < BATCHES_PER_WORKER; i++) {
+				recycled.offer(new ChangeBatch());
+			}
+		}
+
+		/**
+		 * Worker thread loop.
+		 */
+		abstract void run();
+
+		/**
+		 * Parks the worker thread while the generator is paused, reporting the
+		 * pause as reached the first time. The worker must not write to the
+		 * engine again until the pause ends.
+		 *
+		 * @return true if the worker was paused and should check its state again
+		 */
+		boolean awaitResume() {
+			if (!paused) {
+				return false;
+			}
+			CountDownLatch pause = parked;
+			if (pause != reported) {
+				reported = pause;
+				pause.countDown();
+			}
+			LockSupport.park(this);
+			return true;
+		}
+
+		/**
+		 * Hands the current batch to the consumer if an empty batch is
+		 * available to continue with. Worker thread only.
+		 */
+		void publish() {
+			if (current.isEmpty()) {
+				return;
+			}
+			ChangeBatch next = recycled.poll();
+			if (next != null) {
+				// Never full, as the ring can hold every batch of the worker
+				published.offer(current);
+				current = next;
+			}
+		}
+
+		/**
+		 * Records the published batches in the engine's dirty region and
+		 * returns them to the worker. While the generator is paused, the
+		 * batch the parked worker was filling is collected as well. Consumer
+		 * thread only.
+		 *
+		 * @return the number of points drained
+		 */
+		int drain() {
+			int drained = 0;
+			for (ChangeBatch batch = published.poll(); batch != null; batch = published.poll()) {
+				drained += collect(batch);
+				recycled.offer(batch);
+			}
+			if (paused) {
+				// setPaused(true) returned on this thread, so the worker is parked and leaves its batch alone
+				drained += collect(current);
+			}
+			return drained;
+		}
+
+		/**
+		 * Records a batch in the engine's dirty region and empties it.
+		 *
+		 * @return the number of points in the batch
+		 */
+		private int collect(ChangeBatch batch) {
+			int points = batch.points;
+			batch.cells.copyTo(engine.getDirtyRegion());
+			engine.raiseMaxDensity(batch.maxDensity);
+			batch.cells.clear();
+			batch.points = 0;
+			batch.maxDensity = 0;
+			return points;
+		}
+	}
+
+	/**
+	 * A walker that can plot anywhere and merges its private buffer into the
+	 * engine at a low frequency.
+	 */
+	private class BufferWorker extends Worker {
+		final Walker walker;
+		final PlotBuffer buffer;
+		final CellStorage cells;
+		final CellStorage density;
+
+		BufferWorker(Walker walker) {
+			this.walker = walker;
+			this.buffer = new PlotBuffer(cellWidth, engine.getCellHeight(), engine.densityMode);
+			this.cells = engine.getCellStorage();
+			this.density = engine.getDensityStorage();
+		}
+
+		@Override
+		void run() {
+			long lastMerge = System.nanoTime();
+			while (running) {
+				if (paused && !buffer.isEmpty()) {
+					// Show every generated point while the workers are parked
+					merge();
+				}
+				if (awaitResume()) {
+					continue;
+				}
+				walker.walk(BATCH_SIZE, frameCounter, buffer);
+				long now = System.nanoTime();
+				if (now - lastMerge >= MERGE_INTERVAL_NANOS) {
+					merge();
+					lastMerge = now;
+				}
+			}
+		}
+
+		/**
+		 * Stores the buffered points in the engine and publishes the changes.
+		 */
+		private void merge() {
+			current.points += (int) buffer.getPoints();
+			int maxDensity = buffer.merge(cells, density, rowLocks, current.cells);
+			current.maxDensity = Math.max(current.maxDensity, maxDensity);
+			publish();
+		}
+	}
+
+	/**
+	 * A walker that owns a band of rows and writes its cells directly.
+	 */
+	private class TileWorker extends Worker implements PlotSink {
+		final TileWalker walker;
+		final CellStorage cells;
+
+		TileWorker(TileWalker walker) {
+			this.walker = walker;
+			this.cells = engine.getCellStorage();
+		}
+
+		@Override
+		void run() {
+			while (running) {
+				if (awaitResume()) {
+					continue;
+				}
+				walker.walk(BATCH_SIZE, frameCounter, this);
+				publish();
+			}
+		}
+
+		/**
+		 * Stores a plotted cell of the worker's band.
+		 */
+		@Override
+		public void plot(int x, int y, int color) {
+			if (cells.get(x, y) != color) {
+				cells.set(x, y, color);
+				current.cells.mark(x, y);
+				current.points++;
+			}
+		}
+	}
+
+	/**
+	 * Creates a generator for an engine. No thread is started.
+	 *
+	 * @param engine the engine whose configuration the walkers follow
+	 */
+	public BackgroundGenerator(ChaosGameEngine engine) {
+		this.engine = engine;
+		this.cellWidth = engine.getCellWidth();
+	}
+
+	/**
+	 * Sets the number of independent walkers, one per worker thread. Takes
+	 * effect the next time the generator is started.
+	 *
+	 * @param walkerCount number of walkers
+	 * @throws IllegalArgumentException if walkerCount is not positive
+	 */
+	public void setWalkerCount(int walkerCount) {
+		if (walkerCount <= 0) {
+			throw new IllegalArgumentException("Walker count must be positive");
+		}
+
+		this.walkerCount = walkerCount;
+	}
+
+	/**
+	 * Returns the number of walkers used when the generator starts.
+	 *
+	 * @return the walker count
+	 */
+	public int getWalkerCount() {
+		return walkerCount;
+	}
+
+	/**
+	 * Sets whether walkers own disjoint bands of rows. Takes effect the next
+	 * time the generator is started.
+	 *
+	 * @param partitioned true to partition the canvas between the walkers
+	 */
+	public void setPartitioned(boolean partitioned) {
+		this.partitioned = partitioned;
+	}
+
+	/**
+	 * Returns true if walkers are set to own disjoint bands of rows.
+	 *
+	 * @return true for partitioned mode
+	 */
+	public boolean isPartitioned() {
+		return partitioned;
+	}
+
+	/**
+	 * Starts the worker threads if they are not already running. Every start
+	 * creates fresh walkers for the engine's current configuration.
+	 */
+	public void start() {
+		if (running) {
+			return;
+		}
+
+		RandomSource seeds = RandomSource.create(engine.randomAlgorithm);
+		// Tile workers store colors only, so density counting needs the plot buffers
+		if (partitioned && !engine.densityMode && engine.getTransitionTable().isUnrestricted()) {
+			int cellHeight = engine.getCellHeight();
+			int bands = Math.min(walkerCount, cellHeight);
+			List<Worker> tiles = new ArrayList<>();
+			for (int i = 0; i < bands; i++) {
+				int rowStart = (int) ((long) cellHeight * i / bands);
+				int rowEnd = (int) ((long) cellHeight * (i + 1) / bands);
+				TileWalker walker = new TileWalker(engine, seeds.split(), rowStart, rowEnd);
+				// Bands the fractal does not reach get no thread
+				if (!walker.isEmpty()) {
+					tiles.add(new TileWorker(walker));
+				}
+			}
+			workers = tiles.toArray(new Worker[0]);
+		} else {
+			rowLocks = new Object[PlotBuffer.tileRows(engine.getCellHeight())];
+			for (int i = 0; i < rowLocks.length; i++) {
+				rowLocks[i] = new Object();
+			}
+			workers = new Worker[walkerCount];
+			for (int i = 0; i < walkerCount; i++) {
+				workers[i] = new BufferWorker(engine.newWalker(seeds.split()));
+			}
+		}
+
+		running = true;
+		for (int i = 0; i < workers.length; i++) {
+			Worker worker = workers[i];
+			worker.thread = new Thread(worker::run, "chaos-game-walker-" + i);
+			worker.thread.setDaemon(true);
+			worker.thread.start();
+		}
+	}
+
+	/**
+	 * Stops the worker threads and waits for them to finish. Points that were
+	 * not merged into the engine yet are discarded.
+	 */
+	public void stop() {
+		if (!running) {
+			return;
+		}
+
+		running = false;
+		for (Worker worker : workers) {
+			LockSupport.unpark(worker.thread);
+		}
+		for (Worker worker : workers) {
+			try {
+				worker.thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		workers = new Worker[0];
+	}
+
+	/**
+	 * Returns true while the worker threads are running.
+	 *
+	 * @return true if running
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Pauses or resumes the worker threads. Paused workers merge their
+	 * buffered points and park without discarding their walkers, so generation
+	 * resumes where it stopped. Pausing returns only once every running worker
+	 * has parked, so the caller may then plot into the engine itself without
+	 * racing the workers. The pause also applies to workers started while it
+	 * is set.
+	 *
+	 * @param paused true to pause the workers
+	 */
+	public void setPaused(boolean paused) {
+		if (paused == this.paused) {
+			return;
+		}
+
+		if (paused) {
+			CountDownLatch pause = new CountDownLatch(running ? workers.length : 0);
+			// Published before the flag, so a worker seeing the pause reports to this latch
+			parked = pause;
+			this.paused = true;
+			try {
+				pause.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		} else {
+			this.paused = false;
+			for (Worker worker : workers) {
+				LockSupport.unpark(worker.thread);
+			}
+		}
+	}
+
+	/**
+	 * Sets the frame number used to rotate attractor colors.
+	 *
+	 * @param frameCounter current frame number
+	 */
+	public void setFrameCounter(int frameCounter) {
+		this.frameCounter = frameCounter;
+	}
+
+	/**
+	 * Records the cells the workers merged into the engine since the last
+	 * call in the engine's dirty region. Consumer thread only, which must also
+	 * be the thread that pauses and resumes the generator.
+	 *
+	 * @return the number of points drained
+	 */
+	public int drain() {
+		int drained = 0;
+		for (Worker worker : workers) {
+			drained += worker.drain();
+		}
+		return drained;
+	}
+}
@@ -0,0 +1,58 @@
+package main;
+
+/**
+ * Cell storage with one unsigned byte per cell.
+ * <p>
+ * Enough for the 256-entry palette and a quarter of the memory of an
+ * {@code int} per cell: a 16k x 16k canvas takes 256 MiB instead of 1 GiB.
+ * </p>
+ */
+class ByteCellStorage implements CellStorage {
+	public static final int MAX_VALUE = 0xFF;
+
+	private final int width;
+	private final int height;
+	private final byte[] cells;
+
+	/**
+	 * Creates a storage with all cells set to 0.
+	 *
+	 * @param width  number of cells per row
+	 * @param height number of rows
+	 * @throws IllegalArgumentException if the grid does not fit in one array
+	 */
+	public ByteCellStorage(int width, int height) {
+		if ((long) width * height > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Grid too large for byte storage: " + width + "x" + height);
+		}
+
+		this.width = width;
+		this.height = height;
+		this.cells = new byte[width * height];
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public int getMaxValue() {
+		return MAX_VALUE;
+	}
+
+	@Override
+	public int get(int x, int y) {
+		return cells[y * width + x] & 0xFF;
+	}
+
+	@Override
+	public void set(int x, int y, int value) {
+		cells[y * width + x] = (byte) value;
+	}
+}
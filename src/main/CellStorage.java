@@ -0,0 +1,104 @@
+package main;
+
+/**
+ * Storage for the per-cell values of the fractal grid.
+ * <p>
+ * Cells hold small unsigned values, normally palette indices. Implementations
+ * store them in flat row-major arrays indexed by {@code y * width + x}, which
+ * avoids the row-pointer indirection of a jagged array and lets the element
+ * type match the value range. Both the engine's plot path and the renderer's
+ * upload path go through this interface.
+ * </p>
+ *
+ * @see ByteCellStorage
+ * @see ShortCellStorage
+ * @see SparseCellStorage
+ * @see DirectCellStorage
+ * @see MappedCellStorage
+ */
+interface CellStorage {
+	/**
+	 * Returns the number of cells per row.
+	 *
+	 * @return the grid width
+	 */
+	int getWidth();
+
+	/**
+	 * Returns the number of rows.
+	 *
+	 * @return the grid height
+	 */
+	int getHeight();
+
+	/**
+	 * Returns the largest value a cell can hold.
+	 *
+	 * @return the maximum cell value
+	 */
+	int getMaxValue();
+
+	/**
+	 * Returns the value of a cell.
+	 *
+	 * @param x cell column
+	 * @param y cell row
+	 * @return the cell value, 0 for cells never written
+	 */
+	int get(int x, int y);
+
+	/**
+	 * Sets the value of a cell.
+	 *
+	 * @param x     cell column
+	 * @param y     cell row
+	 * @param value the new value, from 0 to {@link #getMaxValue()}
+	 */
+	void set(int x, int y, int value);
+
+	/**
+	 * Frees memory the storage holds outside the Java heap. The engine calls
+	 * it when it replaces the storage, and the storage must not be used
+	 * afterwards. Storages on the heap have nothing to free.
+	 */
+	default void release() {
+	}
+
+	/**
+	 * Creates the cell storages of an engine.
+	 *
+	 * @see ChaosGameEngine#storageFactory
+	 */
+	@FunctionalInterface
+	interface Factory {
+		/**
+		 * Creates a storage with all cells set to 0.
+		 *
+		 * @param width    number of cells per row
+		 * @param height   number of rows
+		 * @param maxValue largest value the cells must hold
+		 * @return the new storage
+		 */
+		CellStorage create(int width, int height, int maxValue);
+	}
+
+	/**
+	 * Creates a storage on the Java heap with the smallest element type that
+	 * holds the values.
+	 *
+	 * @param width    number of cells per row
+	 * @param height   number of rows
+	 * @param maxValue largest value the cells must hold, at most 65535
+	 * @return a {@link ByteCellStorage} or a {@link ShortCellStorage}
+	 * @throws IllegalArgumentException if maxValue is out of range
+	 */
+	static CellStorage onHeap(int width, int height, int maxValue) {
+		if (maxValue <= ByteCellStorage.MAX_VALUE) {
+			return new ByteCellStorage(width, height);
+		}
+		if (maxValue <= ShortCellStorage.MAX_VALUE) {
+			return new ShortCellStorage(width, height);
+		}
+		throw new IllegalArgumentException("Cell values above " + ShortCellStorage.MAX_VALUE + " are not supported");
+	}
+}
@@ -0,0 +1,433 @@
+package main;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Headless core of the Chaos Game algorithm.
+ * <p>
+ * This class owns all of the iteration state of the fractal: the attractor
+ * coordinates, the ratio, the walker that moves the current point and the
+ * cell data the points are plotted into. Coordinates are kept as primitive
+ * doubles and the class has no JavaFX dependency, so it can run batch renders
+ * on headless servers and be benchmarked without a JavaFX toolkit.
+ * </p>
+ * <p>
+ * {@link FractalRenderer} is a thin view on top of this engine that converts
+ * the cell data into pixels.
+ * </p>
+ * <p>
+ * In density mode the engine also counts the hits of every cell, so the view
+ * can tone-map visit frequency instead of showing only the last color.
+ * </p>
+ * <p>
+ * Walkers ({@link Walker}) and the cell data can be driven from
+ * different threads: a {@link BackgroundGenerator} advances any number of
+ * independent walkers and publishes their points, while the view thread plots
+ * them through {@link #plot(int, int, int)}.
+ * </p>
+ *
+ * @see FractalRenderer
+ */
+class ChaosGameEngine implements PlotSink {
+	private static final boolean VECTOR_API_AVAILABLE =
+		ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+	private static final int MAX_PALETTE_INDEX = 0xFF;
+	private static final int MAX_DENSITY = 0xFFFF;
+
+	private final int cellWidth;
+	private final int cellHeight;
+	private CellStorage cellData;
+	private CellStorage densityData;
+	private int maxDensity;
+	private final DirtyRegion dirtyRegion;
+
+	private double[] attractorX;
+	private double[] attractorY;
+	private double ratio;
+	private TransitionTable transitionTable;
+	private Walker walker;
+	public int attractorNumberOfPoints = 3;
+	public int maximalDistanceAllowed = 0;
+	public boolean doNotAllowRepeatPoint = false;
+	public boolean addCenterAsAttractor = false;
+	public TransitionRule transitionRule = null;
+	public RandomSource.Algorithm randomAlgorithm = RandomSource.Algorithm.XOROSHIRO;
+	public boolean independentSampling = false;
+	public boolean vectorLanes = false;
+	public boolean densityMode = false;
+	public boolean trackDirtyCells = true;
+	public CellStorage.Factory storageFactory;
+
+	/**
+	 * Creates a new engine for a grid of cells and initializes the attractors.
+	 *
+	 * @param cellWidth  number of cells per row
+	 * @param cellHeight number of rows
+	 * @throws IllegalArgumentException if dimensions are invalid
+	 */
+	public ChaosGameEngine(int cellWidth, int cellHeight) {
+		this(cellWidth, cellHeight, CellStorage::onHeap);
+		initialize();
+	}
+
+	/**
+	 * Creates a new engine whose cell data is created by a factory, for
+	 * example {@link MappedCellStorage} for grids larger than the heap.
+	 * <p>
+	 * The engine is not initialized yet, so the configuration fields can be
+	 * set before any cell data is allocated; {@link #initialize()} must be
+	 * called before the first iteration.
+	 * </p>
+	 *
+	 * @param cellWidth      number of cells per row
+	 * @param cellHeight     number of rows
+	 * @param storageFactory creates the color and density storages
+	 * @throws IllegalArgumentException if dimensions are invalid
+	 */
+	public ChaosGameEngine(int cellWidth, int cellHeight, CellStorage.Factory storageFactory) {
+		if (cellWidth <= 0 || cellHeight <= 0) {
+			throw new IllegalArgumentException("Cell width and height must be positive");
+		}
+
+		this.cellWidth = cellWidth;
+		this.cellHeight = cellHeight;
+		this.storageFactory = storageFactory;
+		this.dirtyRegion = new DirtyRegion(cellWidth, cellHeight);
+	}
+
+	/**
+	 * Clears the cell data and sets up the attractor points for the current
+	 * configuration. The previous cell storages are
+	 * {@linkplain CellStorage#release() released}, so no other thread may
+	 * still be plotting into them.
+	 */
+	public void initialize() {
+		// Free the previous run's cells, then clear matrix (all cells to background color)
+		if (cellData != null) {
+			cellData.release();
+		}
+		if (densityData != null) {
+			densityData.release();
+		}
+		cellData = storageFactory.create(cellWidth, cellHeight, MAX_PALETTE_INDEX);
+		densityData = densityMode ? storageFactory.create(cellWidth, cellHeight, MAX_DENSITY) : null;
+		maxDensity = 0;
+		dirtyRegion.markAll();
+
+		// Create attractor points in a regular polygon configuration
+		int numPoints = attractorNumberOfPoints + (addCenterAsAttractor ? 1 : 0);
+		attractorX = new double[numPoints];
+		attractorY = new double[numPoints];
+
+		int i;
+		for (i = 0; i < attractorNumberOfPoints; i++) {
+			double angle = (2 * Math.PI * i / attractorNumberOfPoints) - Math.PI / 2;
+			attractorX[i] = cellWidth / 2 + cellWidth / 2.2 * Math.cos(angle);
+			attractorY[i] = cellHeight / 2 + cellHeight / 2.2 * Math.sin(angle);
+		}
+
+		// Add center point as attractor if enabled
+		if (addCenterAsAttractor) {
+			attractorX[i] = cellWidth / 2;
+			attractorY[i] = cellHeight / 2;
+		}
+
+		// Precompute the per-configuration ratio and restriction tables used by the hot loop
+		transitionTable = TransitionTable.compile(buildTransitionRule(), numPoints);
+		ratio = switch (numPoints) {
+			case 3 -> 0.5d;
+			case 4 -> addCenterAsAttractor ? 2d / 3d : 0.5d;
+			default -> calculateOptimalRatio(numPoints);
+		};
+
+		walker = newWalker(RandomSource.create(randomAlgorithm));
+	}
+
+	/**
+	 * Combines the repeat and distance restrictions with the optional custom
+	 * {@link #transitionRule}.
+	 *
+	 * @return the rule for the current configuration
+	 */
+	private TransitionRule buildTransitionRule() {
+		int[] forbidden = new int[2];
+		int count = 0;
+		if (doNotAllowRepeatPoint) {
+			forbidden[count++] = 0;
+		}
+		if (maximalDistanceAllowed != 0) {
+			forbidden[count++] = maximalDistanceAllowed;
+		}
+
+		TransitionRule rule = TransitionRule.forbiddenDistances(Arrays.copyOf(forbidden, count));
+		return transitionRule == null ? rule : rule.and(transitionRule);
+	}
+
+	/**
+	 * Creates an independent walker for the current configuration. Every
+	 * plotted point already lies on the fractal.
+	 * <p>
+	 * With {@link #independentSampling} set and no restrictions, the walker is
+	 * an {@link AddressWalker} that computes every point directly from a
+	 * random address. Otherwise, with {@link #vectorLanes} set and the
+	 * {@code jdk.incubator.vector} module present, it is a
+	 * {@link VectorWalker} that advances one point per SIMD lane. Otherwise
+	 * configurations whose ratio is a dyadic fraction such as 0.5 get a
+	 * {@link FixedPointWalker} on integer coordinates, and all others a
+	 * {@link ChaosWalker}.
+	 * </p>
+	 *
+	 * @param random the walker's own random source
+	 * @return a new walker
+	 */
+	public Walker newWalker(RandomSource random) {
+		if (independentSampling && transitionTable.isUnrestricted()) {
+			return new AddressWalker(this, random);
+		}
+		if (vectorLanes && VECTOR_API_AVAILABLE) {
+			return new VectorWalker(this, random);
+		}
+		if (FixedPointWalker.supports(this)) {
+			return new FixedPointWalker(this, random);
+		}
+		return new ChaosWalker(this, random);
+	}
+
+	/**
+	 * Runs a batch of Chaos Game iterations.
+	 * <p>
+	 * Each iteration:
+	 * <ol>
+	 * <li>Randomly selects an attractor point among those the restrictions
+	 * and the {@link #transitionRule} allow after the previous ones</li>
+	 * <li>Moves the current point partway toward the selected attractor</li>
+	 * <li>Plots the new point with a color based on the selected attractor</li>
+	 * </ol>
+	 * </p>
+	 *
+	 * @param iterations   number of iterations to run
+	 * @param frameCounter current frame number, used to rotate attractor colors
+	 * @see Walker#walk(int, int, PlotSink)
+	 */
+	public void chaosGameIteration(int iterations, int frameCounter) {
+		chaosGameIteration(iterations, frameCounter, this);
+	}
+
+	/**
+	 * Runs a batch of Chaos Game iterations, sending the plotted cells to a sink
+	 * instead of the engine's own cell data.
+	 *
+	 * @param iterations   number of iterations to run
+	 * @param frameCounter current frame number, used to rotate attractor colors
+	 * @param sink         receives the plotted cells
+	 * @throws IllegalStateException if the engine has not been initialized
+	 */
+	public void chaosGameIteration(int iterations, int frameCounter, PlotSink sink) {
+		if (walker == null) {
+			throw new IllegalStateException("Engine is not initialized");
+		}
+
+		walker.walk(iterations, frameCounter, sink);
+	}
+
+	/**
+	 * Renders the fractal exactly with an {@link ExactRenderer}, plotting every
+	 * attractor address down to cell resolution into the engine's cell data.
+	 * The render runs on the common {@link ForkJoinPool} and ends with a full
+	 * repaint of the dirty region.
+	 *
+	 * @param frameCounter current frame number, used to pick attractor colors
+	 */
+	public void renderExact(int frameCounter) {
+		new ExactRenderer(this).renderParallel(frameCounter, cellData, ForkJoinPool.commonPool());
+		if (densityData != null) {
+			// Give every covered cell at least one hit so it shows up in the density image
+			for (int y = 0; y < cellHeight; y++) {
+				for (int x = 0; x < cellWidth; x++) {
+					if (cellData.get(x, y) != 0 && densityData.get(x, y) == 0) {
+						densityData.set(x, y, 1);
+					}
+				}
+			}
+			maxDensity = Math.max(maxDensity, 1);
+		}
+		dirtyRegion.markAll();
+	}
+
+	/**
+	 * Stores a plotted cell and records it in the dirty region if it changed.
+	 * In {@link #densityMode} the cell's hit count is incremented as well,
+	 * saturating at the storage's maximum, and the cell keeps the color of
+	 * the last attractor that hit it. Without {@link #trackDirtyCells}, as in
+	 * headless renders that never upload an image, the dirty region is left
+	 * alone.
+	 *
+	 * @param x     cell column
+	 * @param y     cell row
+	 * @param color palette index
+	 */
+	@Override
+	public void plot(int x, int y, int color) {
+		if (densityData != null) {
+			int count = densityData.get(x, y);
+			if (count < densityData.getMaxValue()) {
+				densityData.set(x, y, ++count);
+				if (count > maxDensity) {
+					maxDensity = count;
+				}
+			}
+			cellData.set(x, y, color);
+			if (trackDirtyCells) {
+				dirtyRegion.mark(x, y);
+			}
+		} else if (cellData.get(x, y) != color) {
+			cellData.set(x, y, color);
+			if (trackDirtyCells) {
+				dirtyRegion.mark(x, y);
+			}
+		}
+	}
+
+	/**
+	 * Calculates the optimal ratio for the Chaos Game with n attractors.
+	 * <p>
+	 * This formula ensures that the fractal fills the space optimally without
+	 * creating gaps or overlaps. The ratio determines how far to move toward
+	 * each attractor point.
+	 * </p>
+	 *
+	 * @param n The number of attractors (must be >= 3)
+	 * @return The optimal ratio for moving toward attractors
+	 * @throws IllegalArgumentException if n < 3
+	 */
+	public static double calculateOptimalRatio(int n) {
+		if (n < 3) {
+			throw new IllegalArgumentException("Number of attractors must be at least 3");
+		}
+
+		// Calculate c(n) = sum from k=0 to floor(n/4) of 2 * cos(2 * pi * k / n)
+		double c_n = 0.0;
+		int k_max = n / 4; // floor(n/4)
+		for (int k = 0; k <= k_max; k++) {
+			double angle = 2 * Math.PI * k / n;
+			c_n += 2 * Math.cos(angle);
+		}
+
+		// Optimal r = 1 - 1/c(n)
+		return 1.0 - 1.0 / c_n;
+	}
+
+	/**
+	 * Returns true if the Vector API module is present, so
+	 * {@link #vectorLanes} takes effect.
+	 *
+	 * @return true if vector walkers can be created
+	 */
+	public static boolean isVectorApiAvailable() {
+		return VECTOR_API_AVAILABLE;
+	}
+
+	/**
+	 * Returns the number of cells per row.
+	 *
+	 * @return the cell grid width
+	 */
+	public int getCellWidth() {
+		return cellWidth;
+	}
+
+	/**
+	 * Returns the number of rows.
+	 *
+	 * @return the cell grid height
+	 */
+	public int getCellHeight() {
+		return cellHeight;
+	}
+
+	/**
+	 * Returns the x coordinates of the attractor points.
+	 *
+	 * @return the attractor x coordinates, in cells
+	 */
+	double[] getAttractorX() {
+		return attractorX;
+	}
+
+	/**
+	 * Returns the y coordinates of the attractor points.
+	 *
+	 * @return the attractor y coordinates, in cells
+	 */
+	double[] getAttractorY() {
+		return attractorY;
+	}
+
+	/**
+	 * Returns the ratio used to move toward the selected attractor.
+	 *
+	 * @return the ratio of the current configuration
+	 */
+	double getRatio() {
+		return ratio;
+	}
+
+	/**
+	 * Returns the restriction rules compiled for the current configuration.
+	 *
+	 * @return the transition table
+	 */
+	TransitionTable getTransitionTable() {
+		return transitionTable;
+	}
+
+	/**
+	 * Returns the cells changed since the view last uploaded the image.
+	 *
+	 * @return the dirty region of this engine
+	 */
+	public DirtyRegion getDirtyRegion() {
+		return dirtyRegion;
+	}
+
+	/**
+	 * Returns the storage holding the palette index of every cell.
+	 *
+	 * @return the cell storage
+	 */
+	public CellStorage getCellStorage() {
+		return cellData;
+	}
+
+	/**
+	 * Returns the storage holding the hit count of every cell.
+	 *
+	 * @return the density storage, or null outside {@link #densityMode}
+	 */
+	public CellStorage getDensityStorage() {
+		return densityData;
+	}
+
+	/**
+	 * Returns the highest hit count of any cell since the last
+	 * initialization.
+	 *
+	 * @return the maximum hit count, 0 outside {@link #densityMode}
+	 */
+	public int getMaxDensity() {
+		return maxDensity;
+	}
+
+	/**
+	 * Raises the highest hit count to a count stored in the density storage
+	 * by another thread, such as a {@link BackgroundGenerator} worker.
+	 *
+	 * @param count a hit count stored outside {@link #plot(int, int, int)}
+	 */
+	public void raiseMaxDensity(int count) {
+		if (count > maxDensity) {
+			maxDensity = count;
+		}
+	}
+}
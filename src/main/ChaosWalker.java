@@ -0,0 +1,103 @@
+package main;
+
+/**
+ * A single Chaos Game walker.
+ * <p>
+ * A walker holds the state that changes on every iteration: the current
+ * point, the rule state (the recent selections), its own random source and
+ * its own copy of the attractor color table. The attractor coordinates, the
+ * ratio and the compiled {@link TransitionTable} are captured from the
+ * {@link ChaosGameEngine} when the walker is created, so several walkers can
+ * run on different threads without sharing any mutable state.
+ * </p>
+ *
+ * @see ChaosGameEngine#newWalker(RandomSource)
+ */
+class ChaosWalker implements Walker {
+	private final double[] attractorX;
+	private final double[] attractorY;
+	private final double ratio;
+	private final TransitionTable transitions;
+	private final TransitionTable.Sampler transitionSampler;
+	private final int cellWidth;
+	private final int cellHeight;
+	private final AttractorColors attractorColors;
+	private double currentX;
+	private double currentY;
+	private int state;
+
+	/**
+	 * Creates a walker for the engine's current configuration, starting at a
+	 * random point and running a short burn-in without plotting.
+	 *
+	 * @param engine the engine providing attractors, ratio and restrictions
+	 * @param random the walker's own random source
+	 */
+	ChaosWalker(ChaosGameEngine engine, RandomSource random) {
+		this.attractorX = engine.getAttractorX();
+		this.attractorY = engine.getAttractorY();
+		this.ratio = engine.getRatio();
+		this.cellWidth = engine.getCellWidth();
+		this.cellHeight = engine.getCellHeight();
+		this.attractorColors = new AttractorColors(attractorX.length);
+		this.transitions = engine.getTransitionTable();
+		this.transitionSampler = transitions.newSampler(random);
+
+		// Start anywhere on the canvas; the burn-in pulls the point onto the fractal
+		currentX = random.nextDouble() * cellWidth;
+		currentY = random.nextDouble() * cellHeight;
+		walk(BURN_IN_ITERATIONS, 0, PlotSink.DISCARD);
+	}
+
+	/**
+	 * Runs a batch of Chaos Game iterations.
+	 * <p>
+	 * The loop works on primitive locals and the tables captured at creation,
+	 * so it does not allocate in steady state. The next attractor is drawn
+	 * directly from the compiled transition table, so every iteration produces
+	 * a point in constant time, with or without restrictions.
+	 * </p>
+	 *
+	 * @param iterations   number of iterations to run
+	 * @param frameCounter current frame number, used to rotate attractor colors
+	 * @param sink         receives the plotted cells
+	 */
+	@Override
+	public void walk(int iterations, int frameCounter, PlotSink sink) {
+		// Copy fields into locals so the loop runs on registers
+		final double[] ax = attractorX;
+		final double[] ay = attractorY;
+		final int[] colors = attractorColors.forFrame(frameCounter);
+		final double r = ratio;
+		final TransitionTable table = transitions;
+		final TransitionTable.Sampler sampler = transitionSampler;
+		double px = currentX;
+		double py = currentY;
+		int currentState = state;
+
+		for (int iteration = 0; iteration < iterations; iteration++) {
+			// Select a random attractor among those the rule allows in this state
+			int randomAttractorIndex = sampler.next(currentState);
+			if (randomAttractorIndex < 0) {
+				// The restrictions leave no attractor to move to
+				break;
+			}
+			currentState = table.nextState(currentState, randomAttractorIndex);
+
+			// Calculate new position (move partway toward the attractor)
+			px += (ax[randomAttractorIndex] - px) * r;
+			py += (ay[randomAttractorIndex] - py) * r;
+
+			// Plot the point with the attractor's color
+			int x = (int) px;
+			int y = (int) py;
+			if (x >= 0 && x < cellWidth && y >= 0 && y < cellHeight) {
+				sink.plot(x, y, colors[randomAttractorIndex]);
+			}
+		}
+
+		currentX = px;
+		currentY = py;
+		state = currentState;
+	}
+}
@@ -0,0 +1,148 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Detects when the fractal image stops changing.
+ * <p>
+ * The detector keeps an occupancy bitset with one bit per cell that has been
+ * colored at least once, and counts the cells that get colored for the first
+ * time in every frame. An exponential moving average of that count is
+ * compared with a threshold: once fewer new cells per frame than the
+ * threshold appear, the image is considered converged and the view can stop
+ * generating and redrawing it until it is restarted.
+ * </p>
+ * <p>
+ * A threshold of 0 disables the detection.
+ * </p>
+ */
+class ConvergenceDetector {
+	public static final double DEFAULT_THRESHOLD = 1.0;
+	private static final double SMOOTHING = 0.05;
+	private static final int WARMUP_FRAMES = 60;
+
+	private final int width;
+	private final long[] occupied;
+	private double threshold;
+	private double newCellsPerFrame;
+	private int newCells;
+	private int frames;
+	private boolean converged;
+
+	/**
+	 * Creates a detector for a grid of cells.
+	 *
+	 * @param width     number of cells per row
+	 * @param height    number of rows
+	 * @param threshold new cells per frame below which the image is converged, 0 to disable
+	 * @throws IllegalArgumentException if the threshold is negative
+	 */
+	public ConvergenceDetector(int width, int height, double threshold) {
+		this.width = width;
+		this.occupied = new long[(int) (((long) width * height + 63) >>> 6)];
+		setThreshold(threshold);
+	}
+
+	/**
+	 * Sets the number of new cells per frame below which the image is
+	 * converged.
+	 *
+	 * @param threshold the threshold, 0 to disable the detection
+	 * @throws IllegalArgumentException if the threshold is negative
+	 */
+	public void setThreshold(double threshold) {
+		if (!(threshold >= 0)) {
+			throw new IllegalArgumentException("Convergence threshold must not be negative");
+		}
+
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Forgets all occupied cells and the measured rate. Called when the
+	 * image is cleared.
+	 */
+	public void reset() {
+		Arrays.fill(occupied, 0);
+		newCellsPerFrame = 0;
+		newCells = 0;
+		frames = 0;
+		converged = false;
+	}
+
+	/**
+	 * Counts the cells of a dirty region that are colored for the first time.
+	 * Must be called before the region is cleared.
+	 *
+	 * @param dirty the cells changed since the last upload
+	 * @param cells the cell data
+	 */
+	public void record(DirtyRegion dirty, CellStorage cells) {
+		if (dirty.isFullRepaint()) {
+			for (int y = dirty.getMinY(); y <= dirty.getMaxY(); y++) {
+				for (int x = dirty.getMinX(); x <= dirty.getMaxX(); x++) {
+					if (cells.get(x, y) != 0) {
+						occupy(y * width + x);
+					}
+				}
+			}
+		} else {
+			for (int i = 0; i < dirty.getCount(); i++) {
+				int cell = dirty.getCell(i);
+				if (cells.get(cell % width, cell / width) != 0) {
+					occupy(cell);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sets the occupancy bit of a cell and counts it if it was not set.
+	 */
+	private void occupy(int cell) {
+		long bit = 1L << cell;
+		long word = occupied[cell >>> 6];
+		if ((word & bit) == 0) {
+			occupied[cell >>> 6] = word | bit;
+			newCells++;
+		}
+	}
+
+	/**
+	 * Closes a frame: folds its count of new cells into the moving average
+	 * and checks it against the threshold.
+	 *
+	 * @return true if the image converged with this frame
+	 */
+	public boolean endFrame() {
+		newCellsPerFrame = frames == 0 ? newCells
+			: newCellsPerFrame + SMOOTHING * (newCells - newCellsPerFrame);
+		newCells = 0;
+		frames++;
+
+		if (converged || threshold == 0 || frames < WARMUP_FRAMES || newCellsPerFrame >= threshold) {
+			return false;
+		}
+		converged = true;
+		return true;
+	}
+
+	/**
+	 * Returns true once the image has converged, until the next
+	 * {@link #reset()}.
+	 *
+	 * @return true if converged
+	 */
+	public boolean isConverged() {
+		return converged;
+	}
+
+	/**
+	 * Returns the number of frames closed since the last {@link #reset()}.
+	 *
+	 * @return the frame count
+	 */
+	public int getFrames() {
+		return frames;
+	}
+}
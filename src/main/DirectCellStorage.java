@@ -0,0 +1,108 @@
+package main;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Cell storage in direct buffers outside the Java heap.
+ * <p>
+ * The cells are flat row-major unsigned bytes or unsigned shorts in
+ * {@linkplain ByteBuffer#allocateDirect(int) direct buffers}. The garbage
+ * collector sees a few small buffer objects whatever the canvas size, so
+ * large canvases neither grow the heap nor lengthen GC pauses. As a single
+ * buffer is limited to 2 GiB, the grid is split into chunks of 1 GiB and cell
+ * offsets are longs.
+ * </p>
+ * <p>
+ * The native memory is returned when the buffers are collected.
+ * {@link #release()} drops them, so this happens even while the storage
+ * itself is still referenced. Distinct cells can be written from different
+ * threads.
+ * </p>
+ */
+class DirectCellStorage implements CellStorage {
+	private static final int CHUNK_SHIFT = 30;
+	private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+	private final int width;
+	private final int height;
+	private final int maxValue;
+	private final int cellShift;
+	private final ByteBuffer[] chunks;
+
+	/**
+	 * Creates a storage with all cells set to 0.
+	 *
+	 * @param width    number of cells per row
+	 * @param height   number of rows
+	 * @param maxValue largest value the cells must hold, at most 65535
+	 * @throws IllegalArgumentException if a dimension is not positive or maxValue is out of range
+	 */
+	public DirectCellStorage(int width, int height, int maxValue) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Width and height must be positive");
+		}
+		if (maxValue <= 0 || maxValue > ShortCellStorage.MAX_VALUE) {
+			throw new IllegalArgumentException("Cell values above " + ShortCellStorage.MAX_VALUE + " are not supported");
+		}
+
+		this.width = width;
+		this.height = height;
+		this.maxValue = maxValue <= ByteCellStorage.MAX_VALUE ? ByteCellStorage.MAX_VALUE : ShortCellStorage.MAX_VALUE;
+		this.cellShift = maxValue <= ByteCellStorage.MAX_VALUE ? 0 : 1;
+		long size = (long) width * height << cellShift;
+
+		this.chunks = new ByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT)];
+		for (int i = 0; i < chunks.length; i++) {
+			long position = (long) i << CHUNK_SHIFT;
+			chunks[i] = ByteBuffer.allocateDirect((int) Math.min(1L << CHUNK_SHIFT, size - position));
+			chunks[i].order(ByteOrder.nativeOrder());
+		}
+	}
+
+	/**
+	 * Drops the buffers so the collector can free their native memory. The
+	 * storage must not be used afterwards; releasing it again has no effect.
+	 */
+	@Override
+	public void release() {
+		for (int i = 0; i < chunks.length; i++) {
+			chunks[i] = null;
+		}
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public int getMaxValue() {
+		return maxValue;
+	}
+
+	@Override
+	public int get(int x, int y) {
+		long offset = ((long) y * width + x) << cellShift;
+		ByteBuffer chunk = chunks[(int) (offset >>> CHUNK_SHIFT)];
+		int index = (int) (offset & CHUNK_MASK);
+		return cellShift == 0 ? chunk.get(index) & 0xFF : chunk.getShort(index) & 0xFFFF;
+	}
+
+	@Override
+	public void set(int x, int y, int value) {
+		long offset = ((long) y * width + x) << cellShift;
+		ByteBuffer chunk = chunks[(int) (offset >>> CHUNK_SHIFT)];
+		int index = (int) (offset & CHUNK_MASK);
+		if (cellShift == 0) {
+			chunk.put(index, (byte) value);
+		} else {
+			chunk.putShort(index, (short) value);
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package main;
+
+/**
+ * Tracks the cells that changed since the last image upload.
+ * <p>
+ * Changed cells are recorded in a fixed-size list of flat cell indices
+ * ({@code y * width + x}) together with their bounding box, so the view only
+ * has to upload the cells that were actually plotted. When more cells change
+ * than the list can hold, or when a whole area is marked, the region degrades
+ * to repainting every cell of its bounding box.
+ * </p>
+ */
+class DirtyRegion {
+	private static final int DEFAULT_CAPACITY = 1 << 16;
+
+	private final int width;
+	private final int height;
+	private final int[] cells;
+	private int count;
+	private boolean fullRepaint;
+	private int minX;
+	private int minY;
+	private int maxX;
+	private int maxY;
+
+	/**
+	 * Creates a dirty region for a grid of cells with the default capacity.
+	 *
+	 * @param width  number of cells per row
+	 * @param height number of rows
+	 */
+	public DirtyRegion(int width, int height) {
+		this(width, height, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a dirty region for a grid of cells.
+	 *
+	 * @param width    number of cells per row
+	 * @param height   number of rows
+	 * @param capacity maximum number of cells tracked before falling back to a full repaint
+	 * @throws IllegalArgumentException if capacity is not positive
+	 */
+	public DirtyRegion(int width, int height, int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive");
+		}
+
+		this.width = width;
+		this.height = height;
+		this.cells = new int[capacity];
+		markAll();
+	}
+
+	/**
+	 * Records a changed cell.
+	 *
+	 * @param x cell column
+	 * @param y cell row
+	 */
+	public void mark(int x, int y) {
+		if (!fullRepaint) {
+			if (count == cells.length) {
+				fullRepaint = true;
+				count = 0;
+			} else {
+				cells[count++] = y * width + x;
+			}
+		}
+
+		if (x < minX) minX = x;
+		if (x > maxX) maxX = x;
+		if (y < minY) minY = y;
+		if (y > maxY) maxY = y;
+	}
+
+	/**
+	 * Marks a rectangular area as changed. The whole bounding box is
+	 * repainted from then on.
+	 *
+	 * @param x0 leftmost changed column
+	 * @param y0 topmost changed row
+	 * @param x1 rightmost changed column
+	 * @param y1 bottommost changed row
+	 */
+	public void markArea(int x0, int y0, int x1, int y1) {
+		fullRepaint = true;
+		count = 0;
+		if (x0 < minX) minX = x0;
+		if (x1 > maxX) maxX = x1;
+		if (y0 < minY) minY = y0;
+		if (y1 > maxY) maxY = y1;
+	}
+
+	/**
+	 * Records every change of this region in another region of the same grid.
+	 *
+	 * @param target the region receiving the changes
+	 */
+	public void copyTo(DirtyRegion target) {
+		if (fullRepaint) {
+			target.markArea(minX, minY, maxX, maxY);
+			return;
+		}
+		for (int i = 0; i < count; i++) {
+			target.mark(cells[i] % width, cells[i] / width);
+		}
+	}
+
+	/**
+	 * Marks the whole grid as changed.
+	 */
+	public void markAll() {
+		fullRepaint = true;
+		count = 0;
+		minX = 0;
+		minY = 0;
+		maxX = width - 1;
+		maxY = height - 1;
+	}
+
+	/**
+	 * Forgets all recorded changes. Called after the changes were uploaded.
+	 */
+	public void clear() {
+		fullRepaint = false;
+		count = 0;
+		minX = Integer.MAX_VALUE;
+		minY = Integer.MAX_VALUE;
+		maxX = Integer.MIN_VALUE;
+		maxY = Integer.MIN_VALUE;
+	}
+
+	/**
+	 * Returns true if every cell of the bounding box must be repainted instead
+	 * of the recorded list.
+	 *
+	 * @return true for a full repaint of the bounding box
+	 */
+	public boolean isFullRepaint() {
+		return fullRepaint;
+	}
+
+	/**
+	 * Returns true if nothing changed since the last {@link #clear()}.
+	 *
+	 * @return true if there is nothing to upload
+	 */
+	public boolean isEmpty() {
+		return !fullRepaint && count == 0;
+	}
+
+	/**
+	 * Returns the number of recorded cells. Only meaningful when
+	 * {@link #isFullRepaint()} is false.
+	 *
+	 * @return the number of recorded cells
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns a recorded cell as a flat index ({@code y * width + x}).
+	 *
+	 * @param i position in the list, from 0 to {@link #getCount()} - 1
+	 * @return the flat cell index
+	 */
+	public int getCell(int i) {
+		return cells[i];
+	}
+
+	/**
+	 * Returns the leftmost changed column of the bounding box.
+	 *
+	 * @return the leftmost changed column
+	 */
+	public int getMinX() {
+		return minX;
+	}
+
+	/**
+	 * Returns the topmost changed row of the bounding box.
+	 *
+	 * @return the topmost changed row
+	 */
+	public int getMinY() {
+		return minY;
+	}
+
+	/**
+	 * Returns the rightmost changed column of the bounding box.
+	 *
+	 * @return the rightmost changed column
+	 */
+	public int getMaxX() {
+		return maxX;
+	}
+
+	/**
+	 * Returns the bottommost changed row of the bounding box.
+	 *
+	 * @return the bottommost changed row
+	 */
+	public int getMaxY() {
+		return maxY;
+	}
+}
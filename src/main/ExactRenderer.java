@@ -0,0 +1,428 @@
+package main;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Deterministic rasterizer for the fractal.
+ * <p>
+ * Instead of sampling attractor addresses at random, this renderer enumerates
+ * them. A point reached by the Chaos Game after selecting attractors
+ * {@code c1 ... cD} is {@code f_cD(... f_c1(p))}, and because every map
+ * contracts by {@code 1 - ratio}, the points sharing the last L selections
+ * all lie inside a copy of the attractor polygon scaled by
+ * {@code (1 - ratio)^L}. The address tree is therefore walked from the most
+ * recent selection backwards, and a subtree stops as soon as its scaled
+ * polygon fits inside a single cell, which is then plotted with the color of
+ * the most recent attractor, as the Chaos Game would. Subtrees outside the
+ * canvas are skipped. The result is the complete image in one bounded pass,
+ * without the speckle of a random run, at a cost proportional to the number
+ * of covered cells.
+ * </p>
+ * <p>
+ * Polygons straddling a cell border are refined until they are below
+ * 1/2^{@value #CUTOFF_BITS} of a cell, and only then plot every cell they
+ * touch, so a cell is drawn without being reached by the fractal only if the
+ * fractal passes within that distance of it. The walk keeps one bit per cell:
+ * every cell is plotted once, by the first subtree reaching it, and a subtree
+ * whose few cells are all plotted already is skipped, which keeps the deep
+ * refinement limited to the neighborhood of the cells not yet plotted.
+ * </p>
+ * <p>
+ * Restriction rules are honored through the {@link TransitionTable}: going
+ * back one selection means moving to a predecessor state. Only states the
+ * walker can reach, and that have an unbounded past, take part.
+ * </p>
+ * <p>
+ * The walk is depth-first over preallocated primitive stacks, one entry per
+ * level, so it does not allocate per node.
+ * </p>
+ *
+ * @see ChaosGameEngine#renderExact(int)
+ */
+class ExactRenderer {
+	private static final int MIN_BAND_ROWS = 16;
+	private static final int BANDS_PER_WORKER = 4;
+	// Polygons straddling a cell border are refined until they are below 1/2^CUTOFF_BITS of a cell
+	static final int CUTOFF_BITS = 20;
+	// Largest box, in cells, checked for being fully plotted before its subtree is walked
+	private static final int MAX_PRUNED_CELLS = 4;
+
+	private final double[] attractorX;
+	private final double[] attractorY;
+	private final double ratio;
+	private final int numPoints;
+	private final int cellWidth;
+	private final int cellHeight;
+	private final double minX;
+	private final double minY;
+	private final double maxX;
+	private final double maxY;
+	private final int maxDepth;
+	private final double[] scale;
+	private final int[] topStates;
+	private final int[][] predecessors;
+
+	/**
+	 * Creates a renderer for the engine's current configuration.
+	 *
+	 * @param engine the engine providing attractors, ratio and transition table
+	 */
+	public ExactRenderer(ChaosGameEngine engine) {
+		this(engine, CUTOFF_BITS);
+	}
+
+	/**
+	 * Creates a renderer with another refinement cutoff, for checking the
+	 * default one against a deeper render.
+	 *
+	 * @param engine     the engine providing attractors, ratio and transition table
+	 * @param cutoffBits polygons straddling a cell border are refined until they are below 1/2^cutoffBits of a cell
+	 */
+	ExactRenderer(ChaosGameEngine engine, int cutoffBits) {
+		this.attractorX = engine.getAttractorX();
+		this.attractorY = engine.getAttractorY();
+		this.ratio = engine.getRatio();
+		this.numPoints = attractorX.length;
+		this.cellWidth = engine.getCellWidth();
+		this.cellHeight = engine.getCellHeight();
+
+		// Bounding box of the attractor polygon, which contains the whole fractal
+		minX = Arrays.stream(attractorX).min().getAsDouble();
+		maxX = Arrays.stream(attractorX).max().getAsDouble();
+		minY = Arrays.stream(attractorY).min().getAsDouble();
+		maxY = Arrays.stream(attractorY).max().getAsDouble();
+
+		double contraction = 1 - ratio;
+		double diameter = Math.max(1, Math.max(maxX - minX, maxY - minY));
+		maxDepth = (int) Math.ceil((Math.log(diameter) + cutoffBits * Math.log(2)) / -Math.log(contraction));
+		scale = new double[maxDepth + 1];
+		scale[0] = 1;
+		for (int level = 1; level <= maxDepth; level++) {
+			scale[level] = scale[level - 1] * contraction;
+		}
+
+		TransitionTable table = engine.getTransitionTable();
+		boolean[] live = liveStates(table);
+		predecessors = predecessors(table, live);
+		topStates = indicesOf(live);
+	}
+
+	/**
+	 * Returns the states reachable by the walker from its start state that
+	 * also have an unbounded chain of predecessors among those states.
+	 */
+	private static boolean[] liveStates(TransitionTable table) {
+		int states = table.getStateCount();
+
+		// Forward reachability from the walker's start state
+		boolean[] live = new boolean[states];
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		live[0] = true;
+		queue.add(0);
+		while (!queue.isEmpty()) {
+			int state = queue.poll();
+			for (int next : table.getSuccessors(state)) {
+				int target = table.nextState(state, next);
+				if (!live[target]) {
+					live[target] = true;
+					queue.add(target);
+				}
+			}
+		}
+
+		// Repeatedly drop states without a live predecessor
+		int[] predecessorCount = new int[states];
+		for (int state = 0; state < states; state++) {
+			if (live[state]) {
+				for (int next : table.getSuccessors(state)) {
+					predecessorCount[table.nextState(state, next)]++;
+				}
+			}
+		}
+		for (int state = 0; state < states; state++) {
+			if (live[state] && predecessorCount[state] == 0) {
+				queue.add(state);
+			}
+		}
+		while (!queue.isEmpty()) {
+			int state = queue.poll();
+			live[state] = false;
+			for (int next : table.getSuccessors(state)) {
+				int target = table.nextState(state, next);
+				if (live[target] && --predecessorCount[target] == 0) {
+					queue.add(target);
+				}
+			}
+		}
+		return live;
+	}
+
+	/**
+	 * Returns, for every live state, the live states that lead to it.
+	 */
+	private static int[][] predecessors(TransitionTable table, boolean[] live) {
+		int states = table.getStateCount();
+		int[] count = new int[states];
+		for (int state = 0; state < states; state++) {
+			if (live[state]) {
+				for (int next : table.getSuccessors(state)) {
+					int target = table.nextState(state, next);
+					if (live[target]) {
+						count[target]++;
+					}
+				}
+			}
+		}
+
+		int[][] predecessors = new int[states][];
+		for (int state = 0; state < states; state++) {
+			predecessors[state] = new int[count[state]];
+			count[state] = 0;
+		}
+		for (int state = 0; state < states; state++) {
+			if (live[state]) {
+				for (int next : table.getSuccessors(state)) {
+					int target = table.nextState(state, next);
+					if (live[target]) {
+						predecessors[target][count[target]++] = state;
+					}
+				}
+			}
+		}
+		return predecessors;
+	}
+
+	private static int[] indicesOf(boolean[] flags) {
+		int count = 0;
+		for (boolean flag : flags) {
+			if (flag) {
+				count++;
+			}
+		}
+		int[] indices = new int[count];
+		for (int i = 0, j = 0; i < flags.length; i++) {
+			if (flags[i]) {
+				indices[j++] = i;
+			}
+		}
+		return indices;
+	}
+
+	/**
+	 * Returns the deepest level the address tree is walked to.
+	 *
+	 * @return the maximum number of maps applied to reach a plotted cell
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Plots every cell covered by the fractal.
+	 *
+	 * @param frameCounter current frame number, used to pick attractor colors
+	 * @param sink         receives the plotted cells
+	 */
+	public void render(int frameCounter, PlotSink sink) {
+		renderRows(frameCounter, sink, 0, cellHeight);
+	}
+
+	/**
+	 * Plots every cell covered by the fractal on a {@link ForkJoinPool}.
+	 * <p>
+	 * The cell grid is split into bands of rows, recursively halved into
+	 * fork-join tasks so idle workers can steal the remaining bands. Each task
+	 * walks only the parts of the address tree whose polygons reach its band
+	 * and writes only cells of its band, so no two tasks ever write the same
+	 * cell and the storage needs neither locks nor atomics. Within a band the
+	 * tree is walked in the same order as {@link #render(int, PlotSink)}, so
+	 * the result is identical to the sequential render.
+	 * </p>
+	 *
+	 * @param frameCounter current frame number, used to pick attractor colors
+	 * @param cells        receives the plotted cells
+	 * @param pool         the pool to run on
+	 */
+	public void renderParallel(int frameCounter, CellStorage cells, ForkJoinPool pool) {
+		PlotSink sink = cells::set;
+		int minBandRows = Math.max(MIN_BAND_ROWS, cellHeight / (pool.getParallelism() * BANDS_PER_WORKER));
+		pool.invoke(new BandTask(frameCounter, sink, 0, cellHeight, minBandRows));
+	}
+
+	/**
+	 * Renders a band of rows, splitting it while it is larger than the
+	 * minimum band. Tasks are never serialized.
+	 */
+	@SuppressWarnings("serial")
+	private class BandTask extends RecursiveAction {
+		private final int frameCounter;
+		private final PlotSink sink;
+		private final int rowStart;
+		private final int rowEnd;
+		private final int minBandRows;
+
+		BandTask(int frameCounter, PlotSink sink, int rowStart, int rowEnd, int minBandRows) {
+			this.frameCounter = frameCounter;
+			this.sink = sink;
+			this.rowStart = rowStart;
+			this.rowEnd = rowEnd;
+			this.minBandRows = minBandRows;
+		}
+
+		@Override
+		protected void compute() {
+			if (rowEnd - rowStart <= minBandRows) {
+				renderRows(frameCounter, sink, rowStart, rowEnd);
+				return;
+			}
+
+			int middle = (rowStart + rowEnd) >>> 1;
+			invokeAll(new BandTask(frameCounter, sink, rowStart, middle, minBandRows),
+				new BandTask(frameCounter, sink, middle, rowEnd, minBandRows));
+		}
+	}
+
+	/**
+	 * Plots every cell covered by the fractal within a band of rows.
+	 *
+	 * @param frameCounter current frame number, used to pick attractor colors
+	 * @param sink         receives the plotted cells
+	 * @param rowStart     first row of the band
+	 * @param rowEnd       row after the last row of the band
+	 */
+	public void renderRows(int frameCounter, PlotSink sink, int rowStart, int rowEnd) {
+		int[] colors = new int[numPoints];
+		AttractorColors.fill(frameCounter, colors);
+		long[] plotted = new long[((rowEnd - rowStart) * cellWidth + 63) >>> 6];
+
+		for (int state : topStates) {
+			// The most recent selection is the state's lowest digit
+			int attractor = state % numPoints;
+			render(sink, plotted, rowStart, rowEnd, colors[attractor], state,
+				attractorX[attractor] * ratio, attractorY[attractor] * ratio, 1);
+		}
+	}
+
+	/**
+	 * Plots every cell covered by the subtree below a node of the address
+	 * tree. The node stands for the composed map {@code p -> s^level * p + t},
+	 * with {@code s = 1 - ratio}.
+	 *
+	 * @param sink     receives the plotted cells
+	 * @param plotted  one bit per cell of the band, set once the cell is plotted
+	 * @param rowStart first row of the band to plot
+	 * @param rowEnd   row after the last row of the band to plot
+	 * @param color    palette index of the subtree's most recent attractor
+	 * @param state    rule state of the earliest selection applied so far
+	 * @param tx       x translation of the node's composed map
+	 * @param ty       y translation of the node's composed map
+	 * @param level    number of maps composed at the node
+	 */
+	void render(PlotSink sink, long[] plotted, int rowStart, int rowEnd, int color, int state, double tx, double ty, int level) {
+		final double[] ax = attractorX;
+		final double[] ay = attractorY;
+		final double r = ratio;
+		final int n = numPoints;
+		final int[][] preds = predecessors;
+		final double[] s = scale;
+		final int base = level;
+
+		// One entry per level below the node: translation, state and next predecessor to visit
+		int levels = maxDepth - base + 1;
+		double[] txs = new double[levels];
+		double[] tys = new double[levels];
+		int[] states = new int[levels];
+		int[] nextChild = new int[levels];
+		txs[0] = tx;
+		tys[0] = ty;
+		states[0] = state;
+
+		int depth = 0;
+		while (depth >= 0) {
+			int currentLevel = base + depth;
+			double sc = s[currentLevel];
+			double x = txs[depth];
+			double y = tys[depth];
+
+			if (nextChild[depth] == 0) {
+				// First visit: test the node's scaled polygon against the band and the cells
+				double left = sc * minX + x;
+				double right = sc * maxX + x;
+				double top = sc * minY + y;
+				double bottom = sc * maxY + y;
+				if (right < 0 || bottom < rowStart || left >= cellWidth || top >= rowEnd) {
+					depth--;
+					continue;
+				}
+
+				int x0 = Math.max(0, (int) left);
+				int x1 = Math.min(cellWidth - 1, (int) right);
+				int y0 = Math.max(rowStart, (int) top);
+				int y1 = Math.min(rowEnd - 1, (int) bottom);
+				if ((x0 == x1 && y0 == y1) || currentLevel == maxDepth) {
+					// Inside one cell, or so small that every cell it touches is within a tiny fraction of it
+					plotBox(sink, plotted, rowStart, color, x0, y0, x1, y1);
+					depth--;
+					continue;
+				}
+				if ((x1 - x0 + 1) * (y1 - y0 + 1) <= MAX_PRUNED_CELLS && isPlotted(plotted, rowStart, x0, y0, x1, y1)) {
+					// Every cell the subtree could reach already has its color
+					depth--;
+					continue;
+				}
+			}
+
+			int[] candidates = preds[states[depth]];
+			if (nextChild[depth] == candidates.length) {
+				nextChild[depth] = 0;
+				depth--;
+				continue;
+			}
+
+			// Go one selection further back in time: apply the predecessor's map inside
+			int previous = candidates[nextChild[depth]++];
+			int attractor = previous % n;
+			double step = sc * r;
+			depth++;
+			txs[depth] = x + step * ax[attractor];
+			tys[depth] = y + step * ay[attractor];
+			states[depth] = previous;
+			nextChild[depth] = 0;
+		}
+	}
+
+	/**
+	 * Plots every cell of a box that has not been plotted yet. The box is
+	 * already clipped to the band.
+	 */
+	private void plotBox(PlotSink sink, long[] plotted, int rowStart, int color, int x0, int y0, int x1, int y1) {
+		for (int cy = y0; cy <= y1; cy++) {
+			for (int cx = x0; cx <= x1; cx++) {
+				int bit = (cy - rowStart) * cellWidth + cx;
+				if ((plotted[bit >>> 6] & 1L << bit) == 0) {
+					plotted[bit >>> 6] |= 1L << bit;
+					sink.plot(cx, cy, color);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns true if every cell of a box, already clipped to the band, has
+	 * been plotted.
+	 */
+	private boolean isPlotted(long[] plotted, int rowStart, int x0, int y0, int x1, int y1) {
+		for (int cy = y0; cy <= y1; cy++) {
+			for (int cx = x0; cx <= x1; cx++) {
+				int bit = (cy - rowStart) * cellWidth + cx;
+				if ((plotted[bit >>> 6] & 1L << bit) == 0) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+}
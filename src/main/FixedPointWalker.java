@@ -0,0 +1,152 @@
+package main;
+
+/**
+ * A Chaos Game walker on 32.32 fixed-point coordinates.
+ * <p>
+ * When the ratio is a dyadic fraction {@code m / 2^k} with a small
+ * denominator, 0.5 for the triangle and the square, a step is
+ * {@code p += (a - p) * m >> k} on longs holding coordinates scaled by 2^32.
+ * The cell of a point is then its integer part, {@code p >> 32}, so the
+ * loop has no floating-point arithmetic and no double-to-int conversion.
+ * </p>
+ * <p>
+ * Points are rounded to 2^-32 cells instead of the double's 2^-42 at typical
+ * canvas sizes. The maps are contractions, so the rounding does not
+ * accumulate: a walker lands in the same cells as a {@link ChaosWalker} with
+ * the same random sequence except for points within about 2^-31 of a cell
+ * border.
+ * </p>
+ *
+ * @see ChaosGameEngine#newWalker(RandomSource)
+ */
+class FixedPointWalker implements Walker {
+	private static final int FRACTION_BITS = 32;
+	private static final double ONE = 1L << FRACTION_BITS;
+	private static final int MAX_RATIO_SHIFT = 8;
+
+	private final long[] attractorX;
+	private final long[] attractorY;
+	private final long ratioNumerator;
+	private final int ratioShift;
+	private final TransitionTable transitions;
+	private final TransitionTable.Sampler transitionSampler;
+	private final int cellWidth;
+	private final int cellHeight;
+	private final AttractorColors attractorColors;
+	private long currentX;
+	private long currentY;
+	private int state;
+
+	/**
+	 * Returns the shift k of a ratio that is exactly {@code m / 2^k} with a
+	 * small denominator, so it can be applied to fixed-point coordinates.
+	 *
+	 * @param ratio the ratio of the configuration
+	 * @return the shift, or -1 if the ratio is not a small dyadic fraction
+	 */
+	static int ratioShift(double ratio) {
+		for (int shift = 1; shift <= MAX_RATIO_SHIFT; shift++) {
+			double numerator = ratio * (1 << shift);
+			if (numerator == Math.rint(numerator)) {
+				return shift;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns true if a configuration can run on fixed-point coordinates: the
+	 * ratio is a small dyadic fraction and every coordinate fits the integer
+	 * part.
+	 *
+	 * @param engine the engine to check
+	 * @return true if a fixed-point walker can be created
+	 */
+	static boolean supports(ChaosGameEngine engine) {
+		// (a - p) * m must not overflow: 2^(16 + 32 + 8) stays well inside a long
+		return ratioShift(engine.getRatio()) > 0
+			&& Math.max(engine.getCellWidth(), engine.getCellHeight()) <= 1 << 16;
+	}
+
+	/**
+	 * Creates a walker with the engine's attractors and ratio converted to
+	 * fixed point, and walks it onto the fractal without plotting.
+	 *
+	 * @param engine the engine providing attractors, ratio and restrictions
+	 * @param random the walker's own random source
+	 * @throws IllegalArgumentException if the configuration is not
+	 *                                  {@linkplain #supports(ChaosGameEngine) supported}
+	 */
+	FixedPointWalker(ChaosGameEngine engine, RandomSource random) {
+		if (!supports(engine)) {
+			throw new IllegalArgumentException("Configuration cannot run on fixed-point coordinates");
+		}
+
+		double[] x = engine.getAttractorX();
+		double[] y = engine.getAttractorY();
+		this.attractorX = new long[x.length];
+		this.attractorY = new long[y.length];
+		for (int i = 0; i < x.length; i++) {
+			attractorX[i] = Math.round(x[i] * ONE);
+			attractorY[i] = Math.round(y[i] * ONE);
+		}
+		this.ratioShift = ratioShift(engine.getRatio());
+		this.ratioNumerator = (long) (engine.getRatio() * (1 << ratioShift));
+		this.cellWidth = engine.getCellWidth();
+		this.cellHeight = engine.getCellHeight();
+		this.attractorColors = new AttractorColors(x.length);
+		this.transitions = engine.getTransitionTable();
+		this.transitionSampler = transitions.newSampler(random);
+
+		// Random start in fixed point; the integer part must stay inside the 16-bit canvas range
+		currentX = (long) (random.nextDouble() * cellWidth * ONE);
+		currentY = (long) (random.nextDouble() * cellHeight * ONE);
+		walk(BURN_IN_ITERATIONS, 0, PlotSink.DISCARD);
+	}
+
+	/**
+	 * Runs a batch of Chaos Game iterations on fixed-point coordinates.
+	 *
+	 * @param iterations   number of iterations to run
+	 * @param frameCounter current frame number, used to rotate attractor colors
+	 * @param sink         receives the plotted cells
+	 */
+	@Override
+	public void walk(int iterations, int frameCounter, PlotSink sink) {
+		final long[] ax = attractorX;
+		final long[] ay = attractorY;
+		final int[] colors = attractorColors.forFrame(frameCounter);
+		final long m = ratioNumerator;
+		final int k = ratioShift;
+		final TransitionTable table = transitions;
+		final TransitionTable.Sampler sampler = transitionSampler;
+		long px = currentX;
+		long py = currentY;
+		int currentState = state;
+
+		for (int iteration = 0; iteration < iterations; iteration++) {
+			// Select a random attractor among those the rule allows in this state
+			int randomAttractorIndex = sampler.next(currentState);
+			if (randomAttractorIndex < 0) {
+				// The restrictions leave no attractor to move to
+				break;
+			}
+			currentState = table.nextState(currentState, randomAttractorIndex);
+
+			// Calculate new position (move partway toward the attractor)
+			px += (ax[randomAttractorIndex] - px) * m >> k;
+			py += (ay[randomAttractorIndex] - py) * m >> k;
+
+			// Plot the point with the attractor's color; the cell is the integer part
+			int x = (int) (px >> FRACTION_BITS);
+			int y = (int) (py >> FRACTION_BITS);
+			if (x >= 0 && x < cellWidth && y >= 0 && y < cellHeight) {
+				sink.plot(x, y, colors[randomAttractorIndex]);
+			}
+		}
+
+		currentX = px;
+		currentY = py;
+		state = currentState;
+	}
+}
@@ -1,9 +1,12 @@
 package main;
 
-import javafx.geometry.Point2D;
+import javafx.geometry.Rectangle2D;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.image.*;
+import javafx.util.Callback;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
 
 /**
  * Renderer for the Sierpinski triangle fractal visualization.
@@ -15,6 +18,12 @@ import java.nio.ByteBuffer;
  * a colored pixel.
  * </p>
  * <p>
+ * The iteration state itself lives in a {@link ChaosGameEngine}; this class
+ * only turns the engine's cell data into pixels. In density mode it maps the
+ * engine's hit counts through a log/gamma tone map, applied to the dirty
+ * cells only.
+ * </p>
+ * <p>
  * The Chaos Game algorithm works by:
  * <ul>
  * <li>Starting with a set of attractor points (vertices of a polygon)</li>
@@ -25,9 +34,15 @@ import java.nio.ByteBuffer;
  * </p>
  * 
  * @see SierpinskiTriangle
+ * @see ChaosGameEngine
  */
 class FractalRenderer {
 	private static final int PALETTE_SIZE = 256;
+	private static final double DEFAULT_FRAME_BUDGET_SHARE = 0.5;
+	private static final double DENSITY_GAMMA = 2.2;
+	private static final int FULL_BRIGHTNESS = 256;
+	private static final int COLOR_CYCLE_SWEEP_FRAMES = 30;
+	private static final int BACKGROUND_FRAME_INTERVAL = 6;
 
 	private int pixelSize;
 	private final GraphicsContext gc;
@@ -36,22 +51,40 @@ class FractalRenderer {
 	private final int cellWidth;
 	private final int cellHeight;
 	private final WritableImage fractalImage;
-	private final PixelWriter pixelWriter;
-	private int[][] cellData;
+	private final IntBuffer frameBuffer;
+	private final PixelBuffer<IntBuffer> pixelBuffer;
+	private final Callback<PixelBuffer<IntBuffer>, Rectangle2D> uploadCallback = buffer -> uploadDirtyCells();
+	private final ChaosGameEngine engine;
+	private final BackgroundGenerator generator;
 	private int mouseX = 0;
 	private int mouseY = 0;
 	private boolean mouseInside = false;
 	private int frameCounter = 0;
+	private final FrameBudget frameBudget = new FrameBudget(DEFAULT_FRAME_BUDGET_SHARE);
 	private final ColorPalette palette = new ColorPalette();
-	private byte[] blockBuffer;
+	private final ConvergenceDetector convergence;
+	private boolean backgroundGeneration = false;
+	private RunMode runMode = RunMode.FULL;
+	private int skippedFrames = 0;
+	private int[] densityLut;
+	private int densityLutMax;
+	private final int[] scanline;
+	private boolean colorCycling = false;
+	private int colorCycleOffset = 0;
+	private int sweepRow = 0;
 
-	private Point2D[] attractorPoints;
-	private Point2D currentPoint;
-	public int attractorNumberOfPoints = 3;
-	public int maximalDistanceAllowed = 0;
-	public boolean doNotAllowRepeatPoint = false;
-	public boolean addCenterAsAttractor = false;
-	private int lastPointIndex;
+	/**
+	 * How much work the renderer does per frame, depending on whether the
+	 * window can be seen.
+	 */
+	public enum RunMode {
+		/** Every frame generates, uploads and draws points. */
+		FULL,
+		/** A few frames per second generate a batch on the caller's thread. */
+		BACKGROUND,
+		/** Frames do nothing. */
+		SUSPENDED
+	}
 
 	/**
 	 * Internal color palette class for managing the colors used in the fractal visualization.
@@ -61,28 +94,51 @@ class FractalRenderer {
 	 * <li>Index 0: Dark gray (background)</li>
 	 * <li>Indices 1-255: Random bright colors for fractal points</li>
 	 * </ul>
+	 * Colors are stored packed as opaque ARGB, which is also premultiplied
+	 * ARGB, so a cell's pixel value is a single array lookup. The point colors
+	 * can be rotated for color cycling; the generated colors are kept so that
+	 * every rotation is exact.
 	 * </p>
 	 */
 	private static class ColorPalette {
-		final byte[][] colors = new byte[PALETTE_SIZE][4];
+		final int[] colors = new int[PALETTE_SIZE];
+		final int[] baseColors = new int[PALETTE_SIZE];
 
 		/**
 		 * Constructs a new palette with background color and random colors for fractal points.
 		 */
 		public ColorPalette() {
 			// Background color (dark gray)
-			colors[0][0] = (byte) 80;  // B
-			colors[0][1] = (byte) 80;  // G
-			colors[0][2] = (byte) 80;  // R
-			colors[0][3] = (byte) 255; // A
+			colors[0] = argb(80, 80, 80);
 
 			// Generate random bright colors for fractal points
 			for (int i = 1; i < PALETTE_SIZE; i++) {
-				colors[i][0] = (byte) (80 + (Math.random() * 150));  // B
-				colors[i][1] = (byte) (80 + (Math.random() * 150));  // G
-				colors[i][2] = (byte) (80 + (Math.random() * 150));  // R
-				colors[i][3] = (byte) 255;                           // A
+				int b = (int) (80 + (Math.random() * 150));
+				int g = (int) (80 + (Math.random() * 150));
+				int r = (int) (80 + (Math.random() * 150));
+				colors[i] = argb(r, g, b);
 			}
+			System.arraycopy(colors, 0, baseColors, 0, PALETTE_SIZE);
+		}
+
+		/**
+		 * Rotates the point colors (indices 1-255) by an offset from the
+		 * generated palette. The background color never moves.
+		 *
+		 * @param offset number of entries to rotate by
+		 */
+		void rotate(int offset) {
+			int points = PALETTE_SIZE - 1;
+			for (int i = 1; i < PALETTE_SIZE; i++) {
+				colors[i] = baseColors[(i - 1 + offset) % points + 1];
+			}
+		}
+
+		/**
+		 * Packs an opaque color.
+		 */
+		static int argb(int r, int g, int b) {
+			return 0xFF << 24 | r << 16 | g << 8 | b;
 		}
 	}
 
@@ -107,14 +163,19 @@ class FractalRenderer {
 		this.width = w;
 		this.height = h;
 		this.pixelSize = pixelSize;
-		this.blockBuffer = new byte[pixelSize * pixelSize * 4];
 		this.cellWidth = width / pixelSize;
 		this.cellHeight = height / pixelSize;
 
-		// Create writable image and pixel writer for efficient drawing
-		fractalImage = new WritableImage(width, height);
-		pixelWriter = fractalImage.getPixelWriter();
-		cellData = new int[cellHeight][cellWidth];
+		// Create an image backed by a shared premultiplied ARGB buffer that is
+		// written in place, so uploads do not copy through the PixelWriter API
+		frameBuffer = ByteBuffer.allocateDirect(width * height * 4)
+			.order(ByteOrder.nativeOrder()).asIntBuffer();
+		pixelBuffer = new PixelBuffer<>(width, height, frameBuffer, PixelFormat.getIntArgbPreInstance());
+		scanline = new int[width];
+		fractalImage = new WritableImage(pixelBuffer);
+		engine = new ChaosGameEngine(cellWidth, cellHeight);
+		generator = new BackgroundGenerator(engine);
+		convergence = new ConvergenceDetector(cellWidth, cellHeight, ConvergenceDetector.DEFAULT_THRESHOLD);
 
 		initialize();
 	}
@@ -128,177 +189,427 @@ class FractalRenderer {
 	}
 
 	/**
-	 * Initializes the renderer by clearing the data arrays and setting up attractor points.
+	 * Initializes the renderer for the engine's current state: resets the
+	 * tone map and the convergence detection, redraws the image and starts
+	 * the generator if enabled. The engine must have been initialized, by its
+	 * constructor or by {@link #restart()}, so its cell data is only
+	 * allocated once per run.
 	 */
 	private void initialize() {
-		// Clear matrix (all cells to background color)
-		cellData = new int[cellHeight][cellWidth];
-
-		// Create attractor points in a regular polygon configuration
-		attractorPoints = new Point2D[attractorNumberOfPoints + (addCenterAsAttractor ? 1 : 0)];
-
-		int i;
-		for (i = 0; i < attractorNumberOfPoints; i++) {
-			double angle = (2 * Math.PI * i / attractorNumberOfPoints) - Math.PI / 2;
-			double x = cellWidth / 2 + cellWidth / 2.2 * Math.cos(angle);
-			double y = cellHeight / 2 + cellHeight / 2.2 * Math.sin(angle);
-			attractorPoints[i] = new Point2D(x, y);
-		}
-		
-		// Add center point as attractor if enabled
-		if (addCenterAsAttractor) {
-			attractorPoints[i] = new Point2D(cellWidth / 2, cellHeight / 2);
-		}
-		
-		// Start at the center of the canvas
-		currentPoint = new Point2D(cellWidth / 2, cellHeight / 2);
+		densityLut = null;
+		densityLutMax = 0;
+		convergence.reset();
 
 		initialDrawing();
 		updateImageFromPalette();
 		gc.drawImage(fractalImage, 0, 0);
 		System.out.println("Fractal image initialized and drawn");
+
+		if (backgroundGeneration) {
+			generator.start();
+		}
 	}
 
 	/**
 	 * Updates the fractal for one frame (called at 60 FPS). Generates new points
-	 * using the Chaos Game algorithm and redraws the canvas.
+	 * using the Chaos Game algorithm and redraws the canvas. With background
+	 * generation enabled the points come from the generator threads and this
+	 * method only drains and uploads them.
+	 * <p>
+	 * Once the {@link ConvergenceDetector} reports that no new cells appear,
+	 * point generation stops and frames neither upload nor draw anything,
+	 * until the fractal is restarted. Color cycling keeps uploading and
+	 * drawing the palette animation, and pending repaints are still flushed. Density mode never converges, as its
+	 * counts keep changing the image.
+	 * </p>
+	 * <p>
+	 * Outside {@link RunMode#FULL} the background generator is paused and
+	 * frames are skipped or do nothing at all, see {@link #setRunMode}.
+	 * </p>
 	 */
 	public void updateRegion() {
+		if (runMode == RunMode.SUSPENDED) {
+			return;
+		}
+		if (runMode == RunMode.BACKGROUND) {
+			if (++skippedFrames < BACKGROUND_FRAME_INTERVAL) {
+				return;
+			}
+			skippedFrames = 0;
+		}
+
+		if (convergence.isConverged()) {
+			// Keep animating the palette and flush repaints such as the one that ends color cycling
+			if (colorCycling || !engine.getDirtyRegion().isEmpty()) {
+				updateImageFromPalette();
+				gc.drawImage(fractalImage, 0, 0);
+			}
+			return;
+		}
+
 		frameCounter++;
-		chaosGameIteration();
+		if (generator.isRunning() && runMode == RunMode.FULL) {
+			generator.setFrameCounter(frameCounter);
+			generator.drain();
+			updateImageFromPalette();
+		} else {
+			chaosGameIteration();
+		}
 		gc.drawImage(fractalImage, 0, 0);
+
+		if (engine.getDensityStorage() == null && convergence.endFrame()) {
+			generator.stop();
+			System.out.println("Fractal converged after " + convergence.getFrames() + " frames, idling until restart");
+		}
 	}
 
 	/**
-	 * Performs one iteration of the Chaos Game algorithm.
+	 * Switches between full-speed, background-trickle and suspended frames.
 	 * <p>
-	 * This method generates multiple new points in the fractal by:
-	 * <ol>
-	 * <li>Randomly selecting an attractor point</li>
-	 * <li>Applying distance restrictions if configured</li>
-	 * <li>Moving the current point partway toward the selected attractor</li>
-	 * <li>Plotting the new point with a color based on the selected attractor</li>
-	 * </ol>
+	 * Only {@link RunMode#FULL} runs the background generator; the other modes
+	 * pause its threads, keeping their walkers, and wait until they have
+	 * parked. In {@link RunMode#BACKGROUND} one frame in
+	 * {@value #BACKGROUND_FRAME_INTERVAL} generates a time-budgeted batch on
+	 * the caller's thread, which therefore never races the workers, and in
+	 * {@link RunMode#SUSPENDED} frames return at once. The cell data and the
+	 * walkers are kept in every mode, so going back to full speed resumes
+	 * the image where it stopped.
 	 * </p>
+	 *
+	 * @param mode the new run mode
 	 */
-	public void chaosGameIteration() {
-		int numPoints = attractorPoints.length;
-		int[] colors = new int[numPoints];
-		
-		// Generate colors for each attractor
-		colors[0] = (frameCounter / 500) % 254 + 1;
-		for (int i = 1; i < numPoints; i++) {
-			colors[i] = (colors[i - 1] + 1) % 254 + 1;
+	public void setRunMode(RunMode mode) {
+		if (mode == runMode) {
+			return;
 		}
 
-		// Calculate optimal ratio for the number of attractors
-		double ratio = switch (numPoints) {
-			case 3 -> 0.5d;
-			case 4 -> addCenterAsAttractor ? 2d / 3d : 0.5d;
-			default -> calculateOptimalRatio(numPoints);
-		};
-
-		// Generate 200 new points per frame for smooth animation
-		for (int iteration = 0; iteration < 200; iteration++) {
-			// Select random attractor point
-			int randomAttractorIndex = (int) (Math.random() * numPoints);
-
-			// Apply distance restrictions if enabled
-			int distanceFromLastPoint = Math.abs(randomAttractorIndex - lastPointIndex);
-			distanceFromLastPoint = Math.min(distanceFromLastPoint, 
-				(numPoints - randomAttractorIndex) + lastPointIndex);
-			
-			if (doNotAllowRepeatPoint && distanceFromLastPoint == 0) {
-				continue;
-			}
-			if (maximalDistanceAllowed != 0 && distanceFromLastPoint == maximalDistanceAllowed) {
-				continue;
-			}
-			
-			lastPointIndex = randomAttractorIndex;
-			Point2D attractorPoint = attractorPoints[randomAttractorIndex];
-			
-			// Calculate new position (move partway toward the attractor)
-			double newDeltaX = (attractorPoint.getX() - currentPoint.getX()) * ratio;
-			double newDeltaY = (attractorPoint.getY() - currentPoint.getY()) * ratio;
-			currentPoint = currentPoint.add(newDeltaX, newDeltaY);
-			
-			// Plot the point with the attractor's color
-			int x = (int) currentPoint.getX();
-			int y = (int) currentPoint.getY();
-			if (x >= 0 && x < cellWidth && y >= 0 && y < cellHeight) {
-				cellData[y][x] = colors[randomAttractorIndex];
-			}
-		}
+		runMode = mode;
+		skippedFrames = 0;
+		generator.setPaused(mode != RunMode.FULL);
+	}
+
+	/**
+	 * Sets the number of new cells per frame below which the fractal is
+	 * considered complete and generation stops.
+	 *
+	 * @param threshold new cells per frame, 0 to never stop
+	 * @throws IllegalArgumentException if the threshold is negative
+	 */
+	public void setConvergenceThreshold(double threshold) {
+		convergence.setThreshold(threshold);
+	}
 
+	/**
+	 * Renders the complete fractal deterministically in one pass, instead of
+	 * waiting for the random points to fill it in.
+	 *
+	 * @see ExactRenderer
+	 */
+	public void renderExact() {
+		long start = System.nanoTime();
+		engine.renderExact(frameCounter);
 		updateImageFromPalette();
+		gc.drawImage(fractalImage, 0, 0);
+		System.out.println("Exact render finished in " + (System.nanoTime() - start) / 1_000_000 + " ms");
 	}
 
 	/**
-	 * Calculates the optimal ratio for the Chaos Game with n attractors.
-	 * <p>
-	 * This formula ensures that the fractal fills the space optimally without
-	 * creating gaps or overlaps. The ratio determines how far to move toward
-	 * each attractor point.
-	 * </p>
-	 * 
-	 * @param n The number of attractors (must be >= 3)
-	 * @return The optimal ratio for moving toward attractors
-	 * @throws IllegalArgumentException if n < 3
+	 * Moves point generation to dedicated background threads or back onto the
+	 * caller's thread.
+	 *
+	 * @param enabled true to generate points on background threads
+	 */
+	public void setBackgroundGeneration(boolean enabled) {
+		backgroundGeneration = enabled;
+		if (enabled && !convergence.isConverged()) {
+			generator.start();
+		} else {
+			generator.stop();
+		}
+	}
+
+	/**
+	 * Sets the number of independent walkers used by background generation.
+	 * A running generator is restarted with the new count.
+	 *
+	 * @param walkerCount number of walkers, one per worker thread
+	 * @throws IllegalArgumentException if walkerCount is not positive
 	 */
-	public static double calculateOptimalRatio(int n) {
-		if (n < 3) {
-			throw new IllegalArgumentException("Number of attractors must be at least 3");
+	public void setWalkerCount(int walkerCount) {
+		generator.setWalkerCount(walkerCount);
+		if (generator.isRunning()) {
+			generator.stop();
+			generator.start();
 		}
+	}
 
-		// Calculate c(n) = sum from k=0 to floor(n/4) of 2 * cos(2 * pi * k / n)
-		double c_n = 0.0;
-		int k_max = n / 4; // floor(n/4)
-		for (int k = 0; k <= k_max; k++) {
-			double angle = 2 * Math.PI * k / n;
-			c_n += 2 * Math.cos(angle);
+	/**
+	 * Makes every background walker own a band of rows of the canvas and plot
+	 * only there, writing its cells directly instead of publishing them. Used
+	 * for unrestricted configurations only; restricted ones keep independent
+	 * walkers. A running generator is restarted in the new mode.
+	 *
+	 * @param partitioned true to give each walker its own band of rows
+	 * @see TileWalker
+	 */
+	public void setPartitionedGeneration(boolean partitioned) {
+		generator.setPartitioned(partitioned);
+		if (generator.isRunning()) {
+			generator.stop();
+			generator.start();
 		}
+	}
+
+	/**
+	 * Stops the background generator threads, if any. Called when the
+	 * application shuts down.
+	 */
+	public void dispose() {
+		generator.stop();
+	}
+
+	/**
+	 * Performs one iteration of the Chaos Game algorithm.
+	 * <p>
+	 * Generates a batch of new points in the engine and refreshes the image
+	 * from the resulting cell data. The batch size comes from the
+	 * {@link FrameBudget}, which measures the time spent here and adapts the
+	 * next batch to the configured share of the frame.
+	 * </p>
+	 */
+	public void chaosGameIteration() {
+		int points = frameBudget.getPointsPerFrame();
+		long start = System.nanoTime();
+
+		engine.chaosGameIteration(points, frameCounter);
+		updateImageFromPalette();
+
+		frameBudget.record(points, System.nanoTime() - start);
+	}
 
-		// Optimal r = 1 - 1/c(n)
-		return 1.0 - 1.0 / c_n;
+	/**
+	 * Sets the share of each 60 FPS frame spent generating points.
+	 *
+	 * @param share share from 0 to 1; 0 uses a fixed batch of 200 points per frame
+	 * @throws IllegalArgumentException if the share is outside [0, 1]
+	 */
+	public void setFrameBudgetShare(double share) {
+		frameBudget.setBudgetShare(share);
+	}
+
+	/**
+	 * Returns the headless engine that holds the iteration state.
+	 *
+	 * @return the Chaos Game engine
+	 */
+	public ChaosGameEngine getEngine() {
+		return engine;
 	}
 
 	/**
 	 * Updates the display image from the cell data using the color palette.
 	 * <p>
-	 * This method converts the cell data into pixel data for display. Each cell
-	 * is rendered using the corresponding color from the palette. The method
-	 * uses efficient pixel writing for better performance.
+	 * Only the cells recorded in the engine's {@link DirtyRegion} are written
+	 * into the shared frame buffer, and only their bounding box is reported to
+	 * JavaFX as changed, so the cost of a frame scales with the number of new
+	 * points rather than with the canvas area.
 	 * </p>
 	 */
 	private void updateImageFromPalette() {
-		WritablePixelFormat<ByteBuffer> pixelFormat = PixelFormat.getByteBgraInstance();
-
-		for (int cy = 0; cy < cellHeight; cy++) {
-			for (int cx = 0; cx < cellWidth; cx++) {
-				// Get color for this cell
-				int color = cellData[cy][cx];
-				byte b = palette.colors[color][0]; // B
-				byte g = palette.colors[color][1]; // G
-				byte r = palette.colors[color][2]; // R
-				byte a = palette.colors[color][3]; // A
-
-				// Fill the pixel block with the color
-				for (int i = 0; i < pixelSize * pixelSize; i++) {
-					int pos = i * 4;
-					blockBuffer[pos] = b;     // B
-					blockBuffer[pos + 1] = g; // G
-					blockBuffer[pos + 2] = r; // R
-					blockBuffer[pos + 3] = a; // A
-				}
+		updateDensityLut();
+		if (colorCycling || !engine.getDirtyRegion().isEmpty()) {
+			pixelBuffer.updateBuffer(uploadCallback);
+		}
+	}
 
-				// Write pixel block to image
-				int screenX = cx * pixelSize;
-				int screenY = cy * pixelSize;
-				if (screenX + pixelSize <= width && screenY + pixelSize <= height) {
-					pixelWriter.setPixels(screenX, screenY, pixelSize, pixelSize, 
-						pixelFormat, blockBuffer, 0, pixelSize * 4);
+	/**
+	 * Animates the colors by rotating the palette, without touching the cell
+	 * data.
+	 * <p>
+	 * Cells store palette indices, so a palette change only has to be applied
+	 * in the upload path. Instead of repainting the whole canvas whenever the
+	 * palette moves, the canvas is repainted in horizontal stripes, one stripe
+	 * per frame, and the palette advances each time a sweep starts over. The
+	 * cost of a frame is therefore one stripe plus the dirty cells, whatever
+	 * the canvas size.
+	 * </p>
+	 *
+	 * @param enabled true to cycle the colors
+	 */
+	public void setColorCycling(boolean enabled) {
+		if (colorCycling && !enabled) {
+			// Finish the interrupted sweep so the whole image uses the same palette
+			engine.getDirtyRegion().markAll();
+		}
+		colorCycling = enabled;
+		sweepRow = 0;
+	}
+
+	/**
+	 * Rebuilds the density tone map when the highest hit count has doubled
+	 * since the last build, and then repaints the whole image with it.
+	 * <p>
+	 * The map takes a hit count to a brightness from 0 to 256 on a log scale
+	 * normalized to the highest count, with gamma correction so that rarely
+	 * visited cells stay visible. Between rebuilds counts above the normalized
+	 * maximum are clamped to full brightness, so only the cells that changed
+	 * have to be uploaded.
+	 * </p>
+	 */
+	private void updateDensityLut() {
+		CellStorage density = engine.getDensityStorage();
+		int maxDensity = engine.getMaxDensity();
+		if (density == null || maxDensity == 0 || densityLut != null && maxDensity < 2 * densityLutMax) {
+			return;
+		}
+
+		if (densityLut == null) {
+			densityLut = new int[density.getMaxValue() + 1];
+		}
+		double scale = 1 / Math.log1p(maxDensity);
+		for (int count = 0; count < densityLut.length; count++) {
+			double level = Math.min(1, Math.log1p(count) * scale);
+			densityLut[count] = (int) Math.round(FULL_BRIGHTNESS * Math.pow(level, 1 / DENSITY_GAMMA));
+		}
+		densityLutMax = maxDensity;
+		engine.getDirtyRegion().markAll();
+	}
+
+	/**
+	 * Writes the dirty cells into the frame buffer. Called by
+	 * {@link PixelBuffer#updateBuffer} on the JavaFX Application Thread.
+	 *
+	 * @return the changed rectangle in pixel coordinates
+	 */
+	private Rectangle2D uploadDirtyCells() {
+		DirtyRegion dirty = engine.getDirtyRegion();
+		CellStorage cells = engine.getCellStorage();
+		CellStorage density = engine.getDensityStorage();
+
+		int minX = dirty.getMinX();
+		int minY = dirty.getMinY();
+		int maxX = dirty.getMaxX();
+		int maxY = dirty.getMaxY();
+
+		if (colorCycling) {
+			// Advance the palette at the start of a sweep, then repaint the next stripe
+			if (sweepRow == 0) {
+				palette.rotate(++colorCycleOffset);
+			}
+			int stripeRows = (cellHeight + COLOR_CYCLE_SWEEP_FRAMES - 1) / COLOR_CYCLE_SWEEP_FRAMES;
+			int stripeEnd = Math.min(cellHeight, sweepRow + stripeRows);
+			writeArea(cells, density, 0, sweepRow, cellWidth - 1, stripeEnd - 1);
+
+			minX = 0;
+			maxX = cellWidth - 1;
+			minY = Math.min(minY, sweepRow);
+			maxY = Math.max(maxY, stripeEnd - 1);
+			sweepRow = stripeEnd == cellHeight ? 0 : stripeEnd;
+		}
+
+		if (density == null) {
+			convergence.record(dirty, cells);
+		}
+
+		if (dirty.isFullRepaint()) {
+			writeArea(cells, density, dirty.getMinX(), dirty.getMinY(), dirty.getMaxX(), dirty.getMaxY());
+		} else {
+			for (int i = 0; i < dirty.getCount(); i++) {
+				int cell = dirty.getCell(i);
+				int cx = cell % cellWidth;
+				int cy = cell / cellWidth;
+				writeCell(cx, cy, cellColor(cells, density, cx, cy));
+			}
+		}
+
+		Rectangle2D changed = new Rectangle2D(minX * pixelSize, minY * pixelSize,
+			(maxX - minX + 1) * pixelSize, (maxY - minY + 1) * pixelSize);
+		dirty.clear();
+		return changed;
+	}
+
+	/**
+	 * Writes every cell of a rectangle into the frame buffer, one bulk put per
+	 * pixel row. Each cell row is converted into a scanline of pixels first,
+	 * in a tight loop over the packed palette, and the scanline is then
+	 * copied into every pixel row of the cells.
+	 *
+	 * @param cells   palette index of every cell
+	 * @param density hit count of every cell, or null without density counting
+	 * @param x0      leftmost cell column
+	 * @param y0      topmost cell row
+	 * @param x1      rightmost cell column
+	 * @param y1      bottommost cell row
+	 */
+	private void writeArea(CellStorage cells, CellStorage density, int x0, int y0, int x1, int y1) {
+		final int[] line = scanline;
+		final int[] colors = palette.colors;
+		int length = (x1 - x0 + 1) * pixelSize;
+
+		for (int cy = y0; cy <= y1; cy++) {
+			if (density == null && pixelSize == 1) {
+				for (int cx = x0, i = 0; cx <= x1; cx++, i++) {
+					line[i] = colors[cells.get(cx, cy)];
 				}
+			} else {
+				for (int cx = x0, i = 0; cx <= x1; cx++) {
+					int argb = cellColor(cells, density, cx, cy);
+					for (int p = 0; p < pixelSize; p++) {
+						line[i++] = argb;
+					}
+				}
+			}
+
+			int row = cy * pixelSize * width + x0 * pixelSize;
+			for (int p = 0; p < pixelSize; p++, row += width) {
+				frameBuffer.put(row, line, 0, length);
+			}
+		}
+	}
+
+	/**
+	 * Returns the color of a cell as premultiplied ARGB (the palette is
+	 * opaque). With density counting the attractor's color is blended from the
+	 * background by the tone-mapped hit count of the cell.
+	 *
+	 * @param cells   palette index of every cell
+	 * @param density hit count of every cell, or null without density counting
+	 * @param cx      cell column
+	 * @param cy      cell row
+	 * @return the cell color
+	 */
+	private int cellColor(CellStorage cells, CellStorage density, int cx, int cy) {
+		int color = palette.colors[cells.get(cx, cy)];
+		if (density == null) {
+			return color;
+		}
+
+		int background = palette.colors[0];
+		int level = densityLut == null ? 0 : densityLut[density.get(cx, cy)];
+		int argb = 0xFF << 24;
+		for (int shift = 0; shift < 24; shift += 8) {
+			int from = background >> shift & 0xFF;
+			int to = color >> shift & 0xFF;
+			argb |= (from + ((to - from) * level >> 8)) << shift;
+		}
+		return argb;
+	}
+
+	/**
+	 * Writes the pixel block of a single cell to the frame buffer.
+	 *
+	 * @param cx   cell column
+	 * @param cy   cell row
+	 * @param argb premultiplied ARGB color of the cell
+	 */
+	private void writeCell(int cx, int cy, int argb) {
+		// Fill the pixel block with the color
+		int screenX = cx * pixelSize;
+		int screenY = cy * pixelSize;
+		for (int y = screenY; y < screenY + pixelSize; y++) {
+			int row = y * width;
+			for (int x = screenX; x < screenX + pixelSize; x++) {
+				frameBuffer.put(row + x, argb);
 			}
 		}
 	}
@@ -321,6 +632,9 @@ class FractalRenderer {
 	 * Clears the current fractal and begins generating a new one.
 	 */
 	public void restart() {
+		// The generator threads must not run while the engine is reinitialized
+		generator.stop();
+		engine.initialize();
 		initialize();
 	}
 }
\ No newline at end of file
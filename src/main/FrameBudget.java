@@ -0,0 +1,105 @@
+package main;
+
+/**
+ * Adaptive points-per-frame controller for a frame-time budget.
+ * <p>
+ * The controller keeps an exponential moving average of the measured cost of
+ * one point and sizes the next batch so that generating and uploading it takes
+ * the configured share of the frame budget. Throughput therefore scales with
+ * the hardware instead of being capped by a fixed batch size.
+ * </p>
+ * <p>
+ * A share of 0 disables the budget mode and every frame uses the fixed
+ * batch size.
+ * </p>
+ */
+class FrameBudget {
+	public static final long FRAME_NANOS_60_FPS = 1_000_000_000L / 60;
+	public static final int FIXED_POINTS_PER_FRAME = 200;
+	private static final int MAX_POINTS_PER_FRAME = 50_000_000;
+	private static final double SMOOTHING = 0.2;
+
+	private final long frameNanos;
+	private double budgetShare;
+	private double nanosPerPoint = -1;
+	private int pointsPerFrame = FIXED_POINTS_PER_FRAME;
+
+	/**
+	 * Creates a budget for a 60 FPS frame.
+	 *
+	 * @param budgetShare share of the frame spent on points, from 0 (fixed batch) to 1
+	 */
+	public FrameBudget(double budgetShare) {
+		this(FRAME_NANOS_60_FPS, budgetShare);
+	}
+
+	/**
+	 * Creates a budget for a frame of the given length.
+	 *
+	 * @param frameNanos  frame length in nanoseconds
+	 * @param budgetShare share of the frame spent on points, from 0 (fixed batch) to 1
+	 * @throws IllegalArgumentException if frameNanos is not positive
+	 */
+	public FrameBudget(long frameNanos, double budgetShare) {
+		if (frameNanos <= 0) {
+			throw new IllegalArgumentException("Frame length must be positive");
+		}
+
+		this.frameNanos = frameNanos;
+		setBudgetShare(budgetShare);
+	}
+
+	/**
+	 * Sets the share of the frame spent generating points.
+	 *
+	 * @param budgetShare share from 0 (fixed batch) to 1
+	 * @throws IllegalArgumentException if the share is outside [0, 1]
+	 */
+	public void setBudgetShare(double budgetShare) {
+		if (!(budgetShare >= 0 && budgetShare <= 1)) {
+			throw new IllegalArgumentException("Budget share must be between 0 and 1");
+		}
+
+		this.budgetShare = budgetShare;
+		if (budgetShare == 0) {
+			pointsPerFrame = FIXED_POINTS_PER_FRAME;
+		}
+	}
+
+	/**
+	 * Returns the share of the frame spent generating points.
+	 *
+	 * @return the budget share, 0 when the budget mode is disabled
+	 */
+	public double getBudgetShare() {
+		return budgetShare;
+	}
+
+	/**
+	 * Returns the number of points to generate in the next frame.
+	 *
+	 * @return the batch size
+	 */
+	public int getPointsPerFrame() {
+		return pointsPerFrame;
+	}
+
+	/**
+	 * Feeds back the measured cost of the last batch and resizes the next one.
+	 *
+	 * @param points       number of points in the batch
+	 * @param elapsedNanos time spent generating and uploading them
+	 */
+	public void record(int points, long elapsedNanos) {
+		if (budgetShare == 0 || points <= 0) {
+			return;
+		}
+
+		double measured = Math.max(1.0, elapsedNanos) / points;
+		nanosPerPoint = nanosPerPoint < 0 ? measured
+			: nanosPerPoint + SMOOTHING * (measured - nanosPerPoint);
+
+		double target = frameNanos * budgetShare / nanosPerPoint;
+		pointsPerFrame = (int) Math.max(1, Math.min(MAX_POINTS_PER_FRAME, target));
+	}
+}
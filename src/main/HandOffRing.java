@@ -0,0 +1,96 @@
+package main;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer/single-consumer ring of objects handed from one
+ * thread to another.
+ * <p>
+ * Publishing an object is a plain array store followed by an ordered write of
+ * the tail counter, and taking one is a plain load followed by an ordered
+ * write of the head counter, so everything the producer wrote to the object
+ * before {@link #offer(Object)} is visible to the consumer after
+ * {@link #poll()}. Neither side ever waits: a full ring rejects the offer and
+ * an empty ring returns null. Each side caches the other side's counter and
+ * only re-reads it when the ring looks full or empty.
+ * </p>
+ * <p>
+ * Exactly one thread may call {@link #offer(Object)} and exactly one thread
+ * may call {@link #poll()}.
+ * </p>
+ *
+ * @param <E> the type of the objects handed over
+ */
+class HandOffRing<E> {
+	private final Object[] elements;
+	private final int mask;
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+
+	// Producer-local state
+	private long producerTail;
+	private long cachedHead;
+
+	// Consumer-local state
+	private long consumerHead;
+	private long cachedTail;
+
+	/**
+	 * Creates an empty ring.
+	 *
+	 * @param capacity number of objects, rounded up to a power of two
+	 * @throws IllegalArgumentException if capacity is not positive or too large
+	 */
+	public HandOffRing(int capacity) {
+		if (capacity <= 0 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+		}
+
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		elements = new Object[size];
+		mask = size - 1;
+	}
+
+	/**
+	 * Hands an object to the consumer. Producer thread only.
+	 *
+	 * @param element the object, which the producer must not touch afterwards
+	 * @return false if the ring is full
+	 */
+	public boolean offer(E element) {
+		if (producerTail - cachedHead == elements.length) {
+			cachedHead = head.get();
+			if (producerTail - cachedHead == elements.length) {
+				return false;
+			}
+		}
+
+		elements[(int) producerTail & mask] = element;
+		tail.lazySet(++producerTail);
+		return true;
+	}
+
+	/**
+	 * Takes the oldest object handed over. Consumer thread only.
+	 *
+	 * @return the object, or null if the ring is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public E poll() {
+		if (consumerHead == cachedTail) {
+			cachedTail = tail.get();
+			if (consumerHead == cachedTail) {
+				return null;
+			}
+		}
+
+		int index = (int) consumerHead & mask;
+		E element = (E) elements[index];
+		elements[index] = null;
+		head.lazySet(++consumerHead);
+		return element;
+	}
+}
@@ -0,0 +1,68 @@
+package main;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command-line density render without a JavaFX toolkit.
+ * <p>
+ * The hit counts are written to a memory-mapped {@link MappedCellStorage}
+ * file, so the grid can be far larger than the Java heap: a 65536 x 65536
+ * render needs an 8 GiB output file but only a few megabytes of heap. The
+ * colors the engine keeps beside the counts go to a temporary mapped file in
+ * the same directory.
+ * </p>
+ * <p>
+ * Named parameters: {@code --width}, {@code --height}, {@code --points},
+ * {@code --attractors} and {@code --output}, the path of the count file.
+ * The file holds 64 x 64 cell tiles of native-order unsigned 16-bit counts,
+ * as laid out by {@link MappedCellStorage}.
+ * </p>
+ */
+class HeadlessRender {
+	private static final int BATCH_SIZE = 1 << 20;
+
+	/**
+	 * Runs the render.
+	 *
+	 * @param args named parameters of the form {@code --name=value}
+	 * @throws IllegalArgumentException if a parameter is malformed
+	 */
+	public static void main(String[] args) {
+		Map<String, String> named = new HashMap<>();
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			if (!arg.startsWith("--") || separator < 0) {
+				throw new IllegalArgumentException("Expected --name=value, got " + arg);
+			}
+			named.put(arg.substring(2, separator), arg.substring(separator + 1));
+		}
+
+		int width = Integer.parseInt(named.getOrDefault("width", "16384"));
+		int height = Integer.parseInt(named.getOrDefault("height", "16384"));
+		long points = Long.parseLong(named.getOrDefault("points", "100000000"));
+		Path output = Path.of(named.getOrDefault("output", "density.bin")).toAbsolutePath();
+		Path directory = output.getParent();
+
+		// Counts go to the output file, the per-cell colors to a scratch file
+		CellStorage.Factory colors = MappedCellStorage.temporaryFiles(directory);
+		ChaosGameEngine engine = new ChaosGameEngine(width, height, (w, h, maxValue) ->
+			maxValue > ByteCellStorage.MAX_VALUE ? new MappedCellStorage(output, w, h, maxValue) : colors.create(w, h, maxValue));
+		engine.attractorNumberOfPoints = Integer.parseInt(named.getOrDefault("attractors", "3"));
+		engine.densityMode = true;
+		// Nothing uploads the changes, so the engine does not have to record them
+		engine.trackDirtyCells = false;
+		engine.initialize();
+
+		long start = System.nanoTime();
+		for (long done = 0; done < points; done += BATCH_SIZE) {
+			engine.chaosGameIteration((int) Math.min(BATCH_SIZE, points - done), 0);
+		}
+		((MappedCellStorage) engine.getDensityStorage()).force();
+		long elapsed = System.nanoTime() - start;
+
+		System.out.printf("%d points on %d x %d cells in %.1f s (%.1f M points/s), max count %d, written to %s%n",
+			points, width, height, elapsed / 1e9, points * 1e3 / elapsed, engine.getMaxDensity(), output);
+	}
+}
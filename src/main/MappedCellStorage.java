@@ -0,0 +1,158 @@
+package main;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Cell storage in a memory-mapped file, for grids that do not fit in the
+ * Java heap.
+ * <p>
+ * The grid is split into 64 x 64 cell tiles stored one after another, row of
+ * tiles by row of tiles, with the cells of a tile in row-major order. A tile
+ * of byte cells is exactly one 4 KiB page, so the pages of the file that the
+ * fractal never reaches are never touched: the operating system keeps only
+ * the visited tiles in its page cache, and on file systems with sparse files
+ * the untouched tiles take no disk space either. A 64k x 64k grid of 16-bit
+ * hit counts is an 8 GiB file, independent of the heap size.
+ * </p>
+ * <p>
+ * The file is mapped in chunks of 1 GiB, as a single mapping is limited to
+ * 2 GiB; cell offsets are longs. Cells hold unsigned bytes or unsigned
+ * shorts, depending on the largest value requested.
+ * </p>
+ * <p>
+ * Distinct cells can be written from different threads. Mappings are
+ * released by the garbage collector once the storage is unreachable.
+ * </p>
+ */
+class MappedCellStorage implements CellStorage {
+	private static final int TILE_SHIFT = 6;
+	private static final int TILE_MASK = (1 << TILE_SHIFT) - 1;
+	private static final int CHUNK_SHIFT = 30;
+	private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+	private final int width;
+	private final int height;
+	private final int maxValue;
+	private final int tilesPerRow;
+	private final int cellShift;
+	private final MappedByteBuffer[] chunks;
+
+	/**
+	 * Creates a storage backed by a file, with all cells set to 0. An existing
+	 * file is truncated.
+	 *
+	 * @param file     the backing file
+	 * @param width    number of cells per row
+	 * @param height   number of rows
+	 * @param maxValue largest value the cells must hold, at most 65535
+	 * @throws IllegalArgumentException if a dimension is not positive or maxValue is out of range
+	 * @throws UncheckedIOException     if the file cannot be created or mapped
+	 */
+	public MappedCellStorage(Path file, int width, int height, int maxValue) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Width and height must be positive");
+		}
+		if (maxValue <= 0 || maxValue > ShortCellStorage.MAX_VALUE) {
+			throw new IllegalArgumentException("Cell values above " + ShortCellStorage.MAX_VALUE + " are not supported");
+		}
+
+		this.width = width;
+		this.height = height;
+		this.maxValue = maxValue <= ByteCellStorage.MAX_VALUE ? ByteCellStorage.MAX_VALUE : ShortCellStorage.MAX_VALUE;
+		this.cellShift = maxValue <= ByteCellStorage.MAX_VALUE ? 0 : 1;
+		this.tilesPerRow = (width + TILE_MASK) >>> TILE_SHIFT;
+		long tileRows = (height + TILE_MASK) >>> TILE_SHIFT;
+		long size = tilesPerRow * tileRows << (2 * TILE_SHIFT + cellShift);
+
+		this.chunks = new MappedByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT)];
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (int i = 0; i < chunks.length; i++) {
+				long position = (long) i << CHUNK_SHIFT;
+				chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.min(1L << CHUNK_SHIFT, size - position));
+				chunks[i].order(ByteOrder.nativeOrder());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot map cell storage file " + file, e);
+		}
+	}
+
+	/**
+	 * Returns a factory that maps every storage it creates to a file of its
+	 * own in a directory. The files are deleted when the JVM exits.
+	 *
+	 * @param directory directory for the backing files
+	 * @return the factory
+	 */
+	public static CellStorage.Factory temporaryFiles(Path directory) {
+		return (width, height, maxValue) -> {
+			try {
+				Path file = Files.createTempFile(directory, "cells-", ".bin");
+				file.toFile().deleteOnExit();
+				return new MappedCellStorage(file, width, height, maxValue);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Cannot create cell storage file in " + directory, e);
+			}
+		};
+	}
+
+	/**
+	 * Returns the byte offset of a cell in the file.
+	 */
+	private long offset(int x, int y) {
+		long tile = (long) (y >>> TILE_SHIFT) * tilesPerRow + (x >>> TILE_SHIFT);
+		int cell = (y & TILE_MASK) << TILE_SHIFT | (x & TILE_MASK);
+		return (tile << 2 * TILE_SHIFT | cell) << cellShift;
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public int getMaxValue() {
+		return maxValue;
+	}
+
+	@Override
+	public int get(int x, int y) {
+		long offset = offset(x, y);
+		MappedByteBuffer chunk = chunks[(int) (offset >>> CHUNK_SHIFT)];
+		int index = (int) (offset & CHUNK_MASK);
+		return cellShift == 0 ? chunk.get(index) & 0xFF : chunk.getShort(index) & 0xFFFF;
+	}
+
+	@Override
+	public void set(int x, int y, int value) {
+		long offset = offset(x, y);
+		MappedByteBuffer chunk = chunks[(int) (offset >>> CHUNK_SHIFT)];
+		int index = (int) (offset & CHUNK_MASK);
+		if (cellShift == 0) {
+			chunk.put(index, (byte) value);
+		} else {
+			chunk.putShort(index, (short) value);
+		}
+	}
+
+	/**
+	 * Writes all changed cells through to the backing file.
+	 */
+	public void force() {
+		for (MappedByteBuffer chunk : chunks) {
+			chunk.force();
+		}
+	}
+}
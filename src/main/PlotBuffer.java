@@ -0,0 +1,178 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Private buffer of the cells plotted by one background worker.
+ * <p>
+ * The buffer covers the whole grid in 64 x 64 cell tiles that are allocated
+ * on first write and kept for reuse, so its memory follows the area the
+ * fractal covers. Each cell holds the palette index of the last point that
+ * hit it and, in density mode, the number of hits since the last merge. A
+ * list of touched tiles lets {@link #merge} visit only the tiles that were
+ * plotted into.
+ * </p>
+ * <p>
+ * Only the owning worker may plot into or merge the buffer. Merging takes
+ * one lock per row of tiles, so workers merging different parts of the
+ * grid do not wait for each other and no hit count is lost when two workers
+ * merge the same cell.
+ * </p>
+ *
+ * @see BackgroundGenerator
+ */
+class PlotBuffer implements PlotSink {
+	private static final int TILE_SHIFT = 6;
+	private static final int TILE_MASK = (1 << TILE_SHIFT) - 1;
+	private static final int TILE_CELLS = 1 << 2 * TILE_SHIFT;
+	private static final int MAX_HITS = 0xFFFF;
+
+	private final int width;
+	private final int height;
+	private final int tilesPerRow;
+	private final boolean countHits;
+	private final byte[][] colorTiles;
+	private final char[][] hitTiles;
+	private final boolean[] touched;
+	private final int[] touchedTiles;
+	private int touchedCount;
+	private long points;
+
+	/**
+	 * Creates an empty buffer for a grid of cells.
+	 *
+	 * @param width     number of cells per row
+	 * @param height    number of rows
+	 * @param countHits true to count the hits of every cell, for density mode
+	 */
+	public PlotBuffer(int width, int height, boolean countHits) {
+		this.width = width;
+		this.height = height;
+		this.tilesPerRow = (width + TILE_MASK) >>> TILE_SHIFT;
+		int tiles = tilesPerRow * tileRows(height);
+		this.countHits = countHits;
+		this.colorTiles = new byte[tiles][];
+		this.hitTiles = countHits ? new char[tiles][] : null;
+		this.touched = new boolean[tiles];
+		this.touchedTiles = new int[tiles];
+	}
+
+	/**
+	 * Returns the number of tile rows of a grid, which is the number of locks
+	 * {@link #merge} expects.
+	 *
+	 * @param height number of rows of the grid
+	 * @return the number of tile rows
+	 */
+	public static int tileRows(int height) {
+		return (height + TILE_MASK) >>> TILE_SHIFT;
+	}
+
+	/**
+	 * Records a plotted cell.
+	 */
+	@Override
+	public void plot(int x, int y, int color) {
+		int tile = (y >>> TILE_SHIFT) * tilesPerRow + (x >>> TILE_SHIFT);
+		if (!touched[tile]) {
+			touch(tile);
+		}
+		int cell = (y & TILE_MASK) << TILE_SHIFT | (x & TILE_MASK);
+		colorTiles[tile][cell] = (byte) color;
+		if (countHits) {
+			char[] hits = hitTiles[tile];
+			if (hits[cell] < MAX_HITS) {
+				hits[cell]++;
+			}
+		}
+		points++;
+	}
+
+	/**
+	 * Adds a tile to the touched list, allocating it on its first use.
+	 */
+	private void touch(int tile) {
+		if (colorTiles[tile] == null) {
+			colorTiles[tile] = new byte[TILE_CELLS];
+			if (countHits) {
+				hitTiles[tile] = new char[TILE_CELLS];
+			}
+		}
+		touched[tile] = true;
+		touchedTiles[touchedCount++] = tile;
+	}
+
+	/**
+	 * Returns true if no point was plotted since the last merge.
+	 *
+	 * @return true if the buffer is empty
+	 */
+	public boolean isEmpty() {
+		return points == 0;
+	}
+
+	/**
+	 * Returns the number of points plotted since the last merge.
+	 *
+	 * @return the point count
+	 */
+	public long getPoints() {
+		return points;
+	}
+
+	/**
+	 * Stores the buffered cells into the engine's storages and empties the
+	 * buffer. Every cell takes its buffered color; in density mode its hit
+	 * count grows by the buffered hits, saturating at the storage's maximum.
+	 *
+	 * @param cells    the palette index of every cell
+	 * @param density  the hit count of every cell, or null outside density mode
+	 * @param rowLocks one lock per {@linkplain #tileRows(int) tile row}
+	 * @param changed  receives the cells whose stored values changed
+	 * @return the highest hit count stored, 0 outside density mode
+	 */
+	public int merge(CellStorage cells, CellStorage density, Object[] rowLocks, DirtyRegion changed) {
+		int maxCount = 0;
+		for (int i = 0; i < touchedCount; i++) {
+			int tile = touchedTiles[i];
+			int tileY = tile / tilesPerRow;
+			int x0 = (tile - tileY * tilesPerRow) << TILE_SHIFT;
+			int y0 = tileY << TILE_SHIFT;
+			int x1 = Math.min(x0 + TILE_MASK, width - 1);
+			int y1 = Math.min(y0 + TILE_MASK, height - 1);
+			byte[] colors = colorTiles[tile];
+			char[] hits = countHits ? hitTiles[tile] : null;
+
+			synchronized (rowLocks[tileY]) {
+				for (int y = y0; y <= y1; y++) {
+					int row = (y & TILE_MASK) << TILE_SHIFT;
+					for (int x = x0; x <= x1; x++) {
+						int color = colors[row | (x & TILE_MASK)] & 0xFF;
+						if (color == 0) {
+							continue;
+						}
+						if (hits != null) {
+							int count = Math.min(density.get(x, y) + hits[row | (x & TILE_MASK)], density.getMaxValue());
+							density.set(x, y, count);
+							maxCount = Math.max(maxCount, count);
+							cells.set(x, y, color);
+							changed.mark(x, y);
+						} else if (cells.get(x, y) != color) {
+							cells.set(x, y, color);
+							changed.mark(x, y);
+						}
+					}
+				}
+			}
+
+			Arrays.fill(colors, (byte) 0);
+			if (hits != null) {
+				Arrays.fill(hits, (char) 0);
+			}
+			touched[tile] = false;
+		}
+		touchedCount = 0;
+		points = 0;
+		return maxCount;
+	}
+}
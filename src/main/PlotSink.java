@@ -0,0 +1,28 @@
+package main;
+
+/**
+ * Receives the cells plotted by the Chaos Game.
+ * <p>
+ * The engine plots straight into its own cell data by default, but a batch can
+ * be redirected to another sink, for example the private buffer a background
+ * generator thread plots into between merges.
+ * </p>
+ *
+ * @see ChaosGameEngine
+ * @see BackgroundGenerator
+ */
+interface PlotSink {
+	/**
+	 * A sink that ignores every cell, for walks that must not plot.
+	 */
+	PlotSink DISCARD = (x, y, color) -> { };
+
+	/**
+	 * Plots a cell. Coordinates are always inside the cell grid.
+	 *
+	 * @param x     cell column
+	 * @param y     cell row
+	 * @param color palette index of the attractor that produced the point
+	 */
+	void plot(int x, int y, int color);
+}
@@ -0,0 +1,60 @@
+package main;
+
+import java.util.SplittableRandom;
+
+/**
+ * Source of random bits for the Chaos Game walkers.
+ * <p>
+ * Implementations are not thread-safe; every walker owns its own source and
+ * derives the sources of further walkers through {@link #split()}. Attractor
+ * indices are not drawn one call at a time but extracted in bulk from each
+ * 64-bit draw by an {@link AttractorIndexSampler}.
+ * </p>
+ *
+ * @see AttractorIndexSampler
+ */
+interface RandomSource {
+	/**
+	 * Available generator algorithms.
+	 */
+	enum Algorithm {
+		XOROSHIRO,
+		SPLITTABLE
+	}
+
+	/**
+	 * Returns the next 64 random bits.
+	 *
+	 * @return a uniformly distributed long
+	 */
+	long nextLong();
+
+	/**
+	 * Returns a uniformly distributed double in [0, 1).
+	 *
+	 * @return the next double
+	 */
+	default double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * Creates a new, statistically independent source for another walker.
+	 *
+	 * @return the new source
+	 */
+	RandomSource split();
+
+	/**
+	 * Creates a randomly seeded source.
+	 *
+	 * @param algorithm the generator algorithm
+	 * @return a new source
+	 */
+	static RandomSource create(Algorithm algorithm) {
+		return switch (algorithm) {
+			case XOROSHIRO -> new XoroshiroRandomSource(System.nanoTime() ^ Double.doubleToLongBits(Math.random()));
+			case SPLITTABLE -> new SplittableRandomSource(new SplittableRandom());
+		};
+	}
+}
@@ -0,0 +1,55 @@
+package main;
+
+/**
+ * Cell storage with one unsigned short per cell, for values that do not fit
+ * in a byte.
+ */
+class ShortCellStorage implements CellStorage {
+	public static final int MAX_VALUE = 0xFFFF;
+
+	private final int width;
+	private final int height;
+	private final short[] cells;
+
+	/**
+	 * Creates a storage with all cells set to 0.
+	 *
+	 * @param width  number of cells per row
+	 * @param height number of rows
+	 * @throws IllegalArgumentException if the grid does not fit in one array
+	 */
+	public ShortCellStorage(int width, int height) {
+		if ((long) width * height > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Grid too large for short storage: " + width + "x" + height);
+		}
+
+		this.width = width;
+		this.height = height;
+		this.cells = new short[width * height];
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public int getMaxValue() {
+		return MAX_VALUE;
+	}
+
+	@Override
+	public int get(int x, int y) {
+		return cells[y * width + x] & 0xFFFF;
+	}
+
+	@Override
+	public void set(int x, int y, int value) {
+		cells[y * width + x] = (short) value;
+	}
+}
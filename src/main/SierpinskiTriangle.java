@@ -11,7 +11,7 @@ import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.ComboBox;
 import javafx.scene.layout.BorderPane;
-import javafx.scene.layout.HBox;
+import javafx.scene.layout.FlowPane;
 import javafx.stage.Stage;
 
 /**
@@ -30,8 +30,17 @@ import javafx.stage.Stage;
  * <li>Distance restrictions between consecutive points</li>
  * <li>Option to prevent repeating the same attractor</li>
  * <li>Option to add center point as an additional attractor</li>
- * <li>60 FPS animation loop for smooth visualization</li>
+ * <li>60 FPS animation loop for smooth visualization, throttled while the
+ * window is unfocused and suspended while it is minimized or hidden</li>
+ * <li>Optional color cycling by palette rotation</li>
+ * <li>Optional density mode showing how often each cell is visited</li>
+ * <li>Cell storage on the heap, in lazily allocated tiles or outside the heap</li>
+ * <li>Optional independent sampling of points from random addresses</li>
+ * <li>Optional SIMD walker lanes when the Vector API module is enabled</li>
+ * <li>Optional background walker threads for point generation</li>
+ * <li>Optional partitioning of the canvas between the background walkers</li>
  * <li>Restart functionality</li>
+ * <li>Deterministic exact render of the complete fractal</li>
  * <li>Configurable window size via command-line parameters</li>
  * </ul>
  * </p>
@@ -46,6 +55,7 @@ public class SierpinskiTriangle extends Application {
 
 	private int canvasWidth;
 	private int canvasHeight;
+	private int walkerCount;
 	private Canvas canvas;
 	private FractalRenderer renderer;
 	private AnimationTimer animationTimer;
@@ -59,6 +69,15 @@ public class SierpinskiTriangle extends Application {
 		NO_ALLOW_DISTANCE_4
 	}
 
+	/**
+	 * Where the engine keeps its cell data.
+	 */
+	private enum CellStorageKind {
+		HEAP_CELLS,
+		SPARSE_TILES,
+		OFF_HEAP_CELLS
+	}
+
 	/**
 	 * Main entry point for the application.
 	 * 
@@ -75,9 +94,10 @@ public class SierpinskiTriangle extends Application {
 	 */
 	@Override
 	public void start(Stage primaryStage) {
-		// Parse command line arguments for size
+		// Parse command line arguments for size and walker count
 		Parameters params = getParameters();
 		parseSize(params);
+		parseWalkers(params);
 
 		primaryStage.setTitle("Sierpinski Triangle Fractal Generator");
 
@@ -92,13 +112,18 @@ public class SierpinskiTriangle extends Application {
 		restartButton.setOnAction(e -> restart());
 		restartButton.setPrefHeight(BUTTON_HEIGHT);
 
+		// Create the exact render button
+		Button exactButton = new Button("Exact render");
+		exactButton.setOnAction(e -> renderer.renderExact());
+		exactButton.setPrefHeight(BUTTON_HEIGHT);
+
 		// Create the number of attractors selector dropdown
 		ComboBox<Integer> numberOfAttractorsCombo = new ComboBox<>();
 		numberOfAttractorsCombo.getItems().addAll(3, 4, 5, 6, 7);
 		numberOfAttractorsCombo.setPrefHeight(BUTTON_HEIGHT);
 		numberOfAttractorsCombo.setValue(3);
 		numberOfAttractorsCombo.setOnAction(e -> {
-			renderer.attractorNumberOfPoints = numberOfAttractorsCombo.getValue();
+			renderer.getEngine().attractorNumberOfPoints = numberOfAttractorsCombo.getValue();
 			restart();
 		});
 
@@ -108,44 +133,128 @@ public class SierpinskiTriangle extends Application {
 		maximalDistancePreviousPoint.setPrefHeight(BUTTON_HEIGHT);
 		maximalDistancePreviousPoint.setValue(MaximalDistance.NO_RESTRICTION);
 		maximalDistancePreviousPoint.setOnAction(e -> {
-			renderer.maximalDistanceAllowed = maximalDistancePreviousPoint.getValue().ordinal();
+			renderer.getEngine().maximalDistanceAllowed = maximalDistancePreviousPoint.getValue().ordinal();
 			restart();
 		});
 
 		CheckBox doNotAllowRepeatBox = new CheckBox();
 		doNotAllowRepeatBox.setText("Do not allow repeat point");
 		doNotAllowRepeatBox.setOnAction(e -> {
-			renderer.doNotAllowRepeatPoint = doNotAllowRepeatBox.isSelected();
+			renderer.getEngine().doNotAllowRepeatPoint = doNotAllowRepeatBox.isSelected();
 			restart();
 		});
 
 		CheckBox addCenterAsAttractorBox = new CheckBox();
 		addCenterAsAttractorBox.setText("Add center as attractor");
 		addCenterAsAttractorBox.setOnAction(e -> {
-			renderer.addCenterAsAttractor = addCenterAsAttractorBox.isSelected();
+			renderer.getEngine().addCenterAsAttractor = addCenterAsAttractorBox.isSelected();
 			restart();
 		});
 
+		CheckBox independentSamplingBox = new CheckBox();
+		independentSamplingBox.setText("Independent samples");
+		independentSamplingBox.setOnAction(e -> {
+			renderer.getEngine().independentSampling = independentSamplingBox.isSelected();
+			restart();
+		});
+
+		CheckBox colorCyclingBox = new CheckBox();
+		colorCyclingBox.setText("Cycle colors");
+		colorCyclingBox.setOnAction(e -> {
+			renderer.setColorCycling(colorCyclingBox.isSelected());
+		});
+
+		CheckBox densityModeBox = new CheckBox();
+		densityModeBox.setText("Density");
+		densityModeBox.setOnAction(e -> {
+			renderer.getEngine().densityMode = densityModeBox.isSelected();
+			restart();
+		});
+
+		// Create the cell storage selector dropdown
+		ComboBox<CellStorageKind> cellStorageCombo = new ComboBox<>();
+		cellStorageCombo.getItems().addAll(CellStorageKind.values());
+		cellStorageCombo.setPrefHeight(BUTTON_HEIGHT);
+		cellStorageCombo.setValue(CellStorageKind.HEAP_CELLS);
+		cellStorageCombo.setOnAction(e -> {
+			renderer.getEngine().storageFactory = switch (cellStorageCombo.getValue()) {
+				case HEAP_CELLS -> CellStorage::onHeap;
+				case SPARSE_TILES -> SparseCellStorage::new;
+				case OFF_HEAP_CELLS -> DirectCellStorage::new;
+			};
+			restart();
+		});
+
+		CheckBox vectorLanesBox = new CheckBox();
+		vectorLanesBox.setText("Vector lanes");
+		vectorLanesBox.setDisable(!ChaosGameEngine.isVectorApiAvailable());
+		vectorLanesBox.setOnAction(e -> {
+			renderer.getEngine().vectorLanes = vectorLanesBox.isSelected();
+			restart();
+		});
+
+		CheckBox backgroundGenerationBox = new CheckBox();
+		backgroundGenerationBox.setText("Generate in background");
+		backgroundGenerationBox.setOnAction(e -> {
+			renderer.setBackgroundGeneration(backgroundGenerationBox.isSelected());
+		});
+
+		CheckBox partitionedBox = new CheckBox();
+		partitionedBox.setText("Walkers own tiles");
+		partitionedBox.setOnAction(e -> {
+			renderer.setPartitionedGeneration(partitionedBox.isSelected());
+		});
+
 		// Layout
 		BorderPane root = new BorderPane();
 		root.setCenter(canvas);
 
-		HBox buttons = new HBox();
+		// The controls wrap onto as many rows as the canvas width needs
+		FlowPane buttons = new FlowPane();
 		root.setBottom(buttons);
 		buttons.setPadding(new Insets(0, 10, 0, 0));
-		buttons.setSpacing(10);
-		buttons.getChildren().addAll(restartButton, numberOfAttractorsCombo, doNotAllowRepeatBox,
-				addCenterAsAttractorBox, maximalDistancePreviousPoint);
+		buttons.setHgap(10);
+		buttons.setVgap(5);
+		buttons.setPrefWrapLength(canvasWidth);
+		buttons.getChildren().addAll(restartButton, exactButton, numberOfAttractorsCombo, doNotAllowRepeatBox,
+				addCenterAsAttractorBox, maximalDistancePreviousPoint, colorCyclingBox, densityModeBox,
+				cellStorageCombo, independentSamplingBox, vectorLanesBox, backgroundGenerationBox, partitionedBox);
 
 		root.setBottom(buttons);
 
-		// Create scene and show
-		Scene scene = new Scene(root, canvasWidth, canvasHeight + BUTTON_HEIGHT);
+		// Create scene and show; it takes the preferred size of the canvas and the control rows
+		Scene scene = new Scene(root);
 		primaryStage.setScene(scene);
 		primaryStage.setResizable(false);
+
+		// Throttle rendering while the window is hidden, minimized or in the background
+		primaryStage.showingProperty().addListener((observable, oldValue, newValue) -> updateRunMode(primaryStage));
+		primaryStage.iconifiedProperty().addListener((observable, oldValue, newValue) -> updateRunMode(primaryStage));
+		primaryStage.focusedProperty().addListener((observable, oldValue, newValue) -> updateRunMode(primaryStage));
 		primaryStage.show();
 	}
 
+	/**
+	 * Picks the renderer's run mode from the window state: suspended while
+	 * the window is hidden or minimized, a background trickle while another
+	 * window has the focus, and full speed otherwise.
+	 *
+	 * @param stage the application window
+	 */
+	private void updateRunMode(Stage stage) {
+		if (renderer == null) {
+			return;
+		}
+
+		if (!stage.isShowing() || stage.isIconified()) {
+			renderer.setRunMode(FractalRenderer.RunMode.SUSPENDED);
+		} else if (!stage.isFocused()) {
+			renderer.setRunMode(FractalRenderer.RunMode.BACKGROUND);
+		} else {
+			renderer.setRunMode(FractalRenderer.RunMode.FULL);
+		}
+	}
+
 	/**
 	 * Parses command line arguments for canvas size.
 	 * 
@@ -171,6 +280,23 @@ public class SierpinskiTriangle extends Application {
 		}
 	}
 
+	/**
+	 * Parses the number of background walkers from the command line. Defaults
+	 * to one walker per available processor.
+	 *
+	 * @param params the application parameters containing named arguments
+	 */
+	private void parseWalkers(Parameters params) {
+		walkerCount = Runtime.getRuntime().availableProcessors();
+		try {
+			if (params.getNamed().containsKey("walkers")) {
+				walkerCount = Math.max(1, Integer.parseInt(params.getNamed().get("walkers")));
+			}
+		} catch (NumberFormatException e) {
+			System.err.println("Invalid walkers parameter, using " + walkerCount);
+		}
+	}
+
 	/**
 	 * Initializes the canvas and starts the animation loop. Sets up the graphics
 	 * context and begins 60 FPS rendering.
@@ -181,6 +307,7 @@ public class SierpinskiTriangle extends Application {
 		finished = false;
 
 		renderer = new FractalRenderer(gc, canvasWidth, canvasHeight, PIXEL_SIZE);
+		renderer.setWalkerCount(walkerCount);
 
 		animationTimer = new AnimationTimer() {
 			@Override
@@ -248,6 +375,9 @@ public class SierpinskiTriangle extends Application {
 	@Override
 	public void stop() {
 		stopAnimation();
+		if (renderer != null) {
+			renderer.dispose();
+		}
 		renderer = null;
 		System.out.println("Sierpinski Triangle application destroyed");
 		Platform.exit();
@@ -0,0 +1,153 @@
+package main;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Cell storage that allocates the grid in 64 x 64 cell tiles on first write.
+ * <p>
+ * Tiles that only ever hold background cells are never allocated: reading
+ * them returns 0 and writing 0 to them is a no-op. The memory of the storage
+ * is therefore proportional to the area the fractal covers instead of the
+ * whole canvas, which pays off for the sparse figures of many attractors
+ * with restrictions and for canvases much larger than the fractal's detail.
+ * </p>
+ * <p>
+ * Distinct cells can be written from different threads. Two threads writing
+ * to the same unallocated tile race to install it with a compare-and-set, and
+ * the loser adopts the winner's tile, so no write is lost.
+ * </p>
+ */
+class SparseCellStorage implements CellStorage {
+	private static final int TILE_SHIFT = 6;
+	private static final int TILE_MASK = (1 << TILE_SHIFT) - 1;
+	private static final int TILE_CELLS = 1 << 2 * TILE_SHIFT;
+	private static final VarHandle BYTE_TILE = MethodHandles.arrayElementVarHandle(byte[][].class);
+	private static final VarHandle SHORT_TILE = MethodHandles.arrayElementVarHandle(short[][].class);
+
+	private final int width;
+	private final int height;
+	private final int maxValue;
+	private final int tilesPerRow;
+	private final byte[][] byteTiles;
+	private final short[][] shortTiles;
+
+	/**
+	 * Creates a storage with all cells set to 0 and no tile allocated.
+	 *
+	 * @param width    number of cells per row
+	 * @param height   number of rows
+	 * @param maxValue largest value the cells must hold, at most 65535
+	 * @throws IllegalArgumentException if a dimension is not positive or maxValue is out of range
+	 */
+	public SparseCellStorage(int width, int height, int maxValue) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Width and height must be positive");
+		}
+		if (maxValue <= 0 || maxValue > ShortCellStorage.MAX_VALUE) {
+			throw new IllegalArgumentException("Cell values above " + ShortCellStorage.MAX_VALUE + " are not supported");
+		}
+
+		this.width = width;
+		this.height = height;
+		this.tilesPerRow = (width + TILE_MASK) >>> TILE_SHIFT;
+		int tiles = tilesPerRow * ((height + TILE_MASK) >>> TILE_SHIFT);
+		if (maxValue <= ByteCellStorage.MAX_VALUE) {
+			this.maxValue = ByteCellStorage.MAX_VALUE;
+			this.byteTiles = new byte[tiles][];
+			this.shortTiles = null;
+		} else {
+			this.maxValue = ShortCellStorage.MAX_VALUE;
+			this.byteTiles = null;
+			this.shortTiles = new short[tiles][];
+		}
+	}
+
+	/**
+	 * Returns the number of tiles allocated so far.
+	 *
+	 * @return the allocated tile count
+	 */
+	public int getAllocatedTiles() {
+		int count = 0;
+		int tiles = byteTiles != null ? byteTiles.length : shortTiles.length;
+		for (int tile = 0; tile < tiles; tile++) {
+			if ((byteTiles != null ? BYTE_TILE.getAcquire(byteTiles, tile) : SHORT_TILE.getAcquire(shortTiles, tile)) != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the index of the tile holding a cell.
+	 */
+	private int tile(int x, int y) {
+		return (y >>> TILE_SHIFT) * tilesPerRow + (x >>> TILE_SHIFT);
+	}
+
+	/**
+	 * Returns the index of a cell within its tile.
+	 */
+	private static int cell(int x, int y) {
+		return (y & TILE_MASK) << TILE_SHIFT | (x & TILE_MASK);
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public int getMaxValue() {
+		return maxValue;
+	}
+
+	@Override
+	public int get(int x, int y) {
+		int tile = tile(x, y);
+		if (byteTiles != null) {
+			byte[] cells = (byte[]) BYTE_TILE.getAcquire(byteTiles, tile);
+			return cells == null ? 0 : cells[cell(x, y)] & 0xFF;
+		}
+		short[] cells = (short[]) SHORT_TILE.getAcquire(shortTiles, tile);
+		return cells == null ? 0 : cells[cell(x, y)] & 0xFFFF;
+	}
+
+	@Override
+	public void set(int x, int y, int value) {
+		int tile = tile(x, y);
+		if (byteTiles != null) {
+			byte[] cells = (byte[]) BYTE_TILE.getAcquire(byteTiles, tile);
+			if (cells == null) {
+				if (value == 0) {
+					return;
+				}
+				byte[] allocated = new byte[TILE_CELLS];
+				cells = (byte[]) BYTE_TILE.compareAndExchange(byteTiles, tile, null, allocated);
+				if (cells == null) {
+					cells = allocated;
+				}
+			}
+			cells[cell(x, y)] = (byte) value;
+		} else {
+			short[] cells = (short[]) SHORT_TILE.getAcquire(shortTiles, tile);
+			if (cells == null) {
+				if (value == 0) {
+					return;
+				}
+				short[] allocated = new short[TILE_CELLS];
+				cells = (short[]) SHORT_TILE.compareAndExchange(shortTiles, tile, null, allocated);
+				if (cells == null) {
+					cells = allocated;
+				}
+			}
+			cells[cell(x, y)] = (short) value;
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package main;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random source backed by {@link SplittableRandom}.
+ */
+class SplittableRandomSource implements RandomSource {
+	private final SplittableRandom random;
+
+	/**
+	 * Creates a source drawing from a splittable generator.
+	 *
+	 * @param random the generator, owned by this source from now on
+	 */
+	public SplittableRandomSource(SplittableRandom random) {
+		this.random = random;
+	}
+
+	@Override
+	public long nextLong() {
+		return random.nextLong();
+	}
+
+	@Override
+	public double nextDouble() {
+		return random.nextDouble();
+	}
+
+	@Override
+	public RandomSource split() {
+		return new SplittableRandomSource(random.split());
+	}
+}
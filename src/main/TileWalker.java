@@ -0,0 +1,197 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * A Chaos Game walker that only plots inside its own band of rows.
+ * <p>
+ * All points whose k most recent selections are a given address prefix lie
+ * in a copy of the attractor polygon scaled by {@code s^k} and translated by
+ * a constant that depends only on the prefix (see {@link Walker}). The
+ * walker keeps a free walk running on the whole fractal and maps each of its
+ * points into one of the prefixes whose polygon reaches the band, chosen
+ * uniformly. Prefixes are equally likely in the unrestricted game, so the
+ * points keep the same distribution as an ordinary walk restricted to the
+ * band.
+ * </p>
+ * <p>
+ * Points that a straddling prefix maps outside the band are dropped; the
+ * walker owning the neighboring band covers them with its own prefixes. The
+ * prefix depth is chosen so that prefix polygons are small against the band
+ * and few points are wasted.
+ * </p>
+ * <p>
+ * Prefixes are drawn uniformly, so only the unrestricted game can be
+ * partitioned.
+ * </p>
+ *
+ * @see BackgroundGenerator
+ */
+class TileWalker implements Walker {
+	private static final int MAX_PREFIXES = 1 << 16;
+	private static final int PREFIXES_PER_BAND_HEIGHT = 4;
+
+	private final double[] attractorX;
+	private final double[] attractorY;
+	private final double ratio;
+	private final AttractorIndexSampler attractorSampler;
+	private final AttractorIndexSampler prefixSampler;
+	private final int cellWidth;
+	private final int rowStart;
+	private final int rowEnd;
+	private final double prefixScale;
+	private final double[] prefixX;
+	private final double[] prefixY;
+	private final int[] prefixAttractor;
+	private final AttractorColors attractorColors;
+	private double currentX;
+	private double currentY;
+
+	/**
+	 * Creates a walker for a band of rows of the engine's current
+	 * configuration.
+	 *
+	 * @param engine   the engine providing attractors and ratio
+	 * @param random   the walker's own random source
+	 * @param rowStart first row of the band
+	 * @param rowEnd   row after the last row of the band
+	 * @throws IllegalArgumentException if the engine's configuration has
+	 *                                  restrictions or the band is invalid
+	 */
+	TileWalker(ChaosGameEngine engine, RandomSource random, int rowStart, int rowEnd) {
+		if (!engine.getTransitionTable().isUnrestricted()) {
+			throw new IllegalArgumentException("Only unrestricted configurations can be partitioned");
+		}
+		if (rowStart < 0 || rowEnd <= rowStart || rowEnd > engine.getCellHeight()) {
+			throw new IllegalArgumentException("Invalid band of rows");
+		}
+
+		this.attractorX = engine.getAttractorX();
+		this.attractorY = engine.getAttractorY();
+		this.ratio = engine.getRatio();
+		this.cellWidth = engine.getCellWidth();
+		this.rowStart = rowStart;
+		this.rowEnd = rowEnd;
+		this.attractorColors = new AttractorColors(attractorX.length);
+
+		// Deepen the prefixes until their polygons are a fraction of the band height;
+		// at least one digit is needed to know the color
+		int numPoints = attractorX.length;
+		double s = 1 - ratio;
+		double minY = Double.MAX_VALUE;
+		double maxY = -Double.MAX_VALUE;
+		for (double y : attractorY) {
+			minY = Math.min(minY, y);
+			maxY = Math.max(maxY, y);
+		}
+		double bandHeight = rowEnd - rowStart;
+		int depth = 0;
+		double scale = 1;
+		long prefixCount = 1;
+		while (depth == 0 || (maxY - minY) * scale * PREFIXES_PER_BAND_HEIGHT > bandHeight
+				&& prefixCount * numPoints <= MAX_PREFIXES) {
+			depth++;
+			scale *= s;
+			prefixCount *= numPoints;
+		}
+		this.prefixScale = scale;
+
+		// Translation of every prefix, built from the earliest selection outward
+		double[] tx = new double[(int) prefixCount];
+		double[] ty = new double[(int) prefixCount];
+		int[] recent = new int[(int) prefixCount];
+		int count = 1;
+		for (int level = 0; level < depth; level++) {
+			for (int i = count - 1; i >= 0; i--) {
+				for (int a = numPoints - 1; a >= 0; a--) {
+					int j = i * numPoints + a;
+					tx[j] = ratio * attractorX[a] + s * tx[i];
+					ty[j] = ratio * attractorY[a] + s * ty[i];
+					recent[j] = a;
+				}
+			}
+			count *= numPoints;
+		}
+
+		// Keep the prefixes whose polygon reaches the band
+		int kept = 0;
+		for (int i = 0; i < count; i++) {
+			if (scale * maxY + ty[i] >= rowStart && scale * minY + ty[i] < rowEnd) {
+				tx[kept] = tx[i];
+				ty[kept] = ty[i];
+				recent[kept] = recent[i];
+				kept++;
+			}
+		}
+		this.prefixX = Arrays.copyOf(tx, kept);
+		this.prefixY = Arrays.copyOf(ty, kept);
+		this.prefixAttractor = Arrays.copyOf(recent, kept);
+
+		this.attractorSampler = new AttractorIndexSampler(random, numPoints);
+		this.prefixSampler = kept == 0 ? null : new AttractorIndexSampler(random, kept);
+
+		// The free walk is never plotted directly, so it only needs to reach the fractal once
+		currentX = random.nextDouble() * cellWidth;
+		currentY = random.nextDouble() * engine.getCellHeight();
+		for (int i = 0; i < BURN_IN_ITERATIONS; i++) {
+			int a = attractorSampler.next();
+			currentX += (attractorX[a] - currentX) * ratio;
+			currentY += (attractorY[a] - currentY) * ratio;
+		}
+	}
+
+	/**
+	 * Returns true if no part of the fractal reaches the band, so the walker
+	 * never plots anything.
+	 *
+	 * @return true for an empty band
+	 */
+	public boolean isEmpty() {
+		return prefixSampler == null;
+	}
+
+	/**
+	 * Runs a batch of iterations, plotting only the points that land in the
+	 * band. Does nothing if the band is empty.
+	 *
+	 * @param iterations   number of iterations to run
+	 * @param frameCounter current frame number, used to rotate attractor colors
+	 * @param sink         receives the plotted cells
+	 */
+	@Override
+	public void walk(int iterations, int frameCounter, PlotSink sink) {
+		if (prefixSampler == null) {
+			return;
+		}
+		final double[] ax = attractorX;
+		final double[] ay = attractorY;
+		final double[] tx = prefixX;
+		final double[] ty = prefixY;
+		final int[] recent = prefixAttractor;
+		final int[] colors = attractorColors.forFrame(frameCounter);
+		final double r = ratio;
+		final double scale = prefixScale;
+		final AttractorIndexSampler attractors = attractorSampler;
+		final AttractorIndexSampler prefixes = prefixSampler;
+		double px = currentX;
+		double py = currentY;
+
+		for (int iteration = 0; iteration < iterations; iteration++) {
+			// Advance the free walk
+			int a = attractors.next();
+			px += (ax[a] - px) * r;
+			py += (ay[a] - py) * r;
+
+			// Map its point into one of the band's prefixes
+			int prefix = prefixes.next();
+			int x = (int) (scale * px + tx[prefix]);
+			int y = (int) (scale * py + ty[prefix]);
+			if (y >= rowStart && y < rowEnd && x >= 0 && x < cellWidth) {
+				sink.plot(x, y, colors[recent[prefix]]);
+			}
+		}
+
+		currentX = px;
+		currentY = py;
+	}
+}
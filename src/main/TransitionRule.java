@@ -0,0 +1,147 @@
+package main;
+
+/**
+ * A rule constraining which attractor may be selected next.
+ * <p>
+ * A rule looks at the last {@link #getHistoryLength()} selected attractors
+ * and gives every candidate a non-negative weight; a weight of 0 forbids the
+ * candidate and positive weights are relative selection probabilities. Rules
+ * are never evaluated in the hot loop: {@link TransitionTable#compile} turns
+ * them into per-state sampling tables once per configuration, so a step costs
+ * the same whatever the rule's complexity.
+ * </p>
+ *
+ * @see TransitionTable
+ */
+interface TransitionRule {
+	/**
+	 * Returns how many previous selections the rule looks at.
+	 *
+	 * @return the history length, at least 1
+	 */
+	int getHistoryLength();
+
+	/**
+	 * Returns the weight of selecting an attractor after a history.
+	 *
+	 * @param history   the previous selections, most recent first, of length
+	 *                  {@link #getHistoryLength()}
+	 * @param next      the candidate attractor
+	 * @param numPoints number of attractors
+	 * @return the weight, 0 to forbid the candidate
+	 */
+	double weight(int[] history, int next, int numPoints);
+
+	/**
+	 * Combines two rules; the weights multiply, so a candidate forbidden by
+	 * either rule is forbidden.
+	 *
+	 * @param other the rule to combine with
+	 * @return the combined rule
+	 */
+	default TransitionRule and(TransitionRule other) {
+		TransitionRule self = this;
+		return new TransitionRule() {
+			@Override
+			public int getHistoryLength() {
+				return Math.max(self.getHistoryLength(), other.getHistoryLength());
+			}
+
+			@Override
+			public double weight(int[] history, int next, int numPoints) {
+				return self.weight(history, next, numPoints) * other.weight(history, next, numPoints);
+			}
+		};
+	}
+
+	/**
+	 * Returns a rule that forbids the attractors at some cyclic distances from
+	 * the previous one. Distance 0 forbids repeating the previous attractor.
+	 *
+	 * @param distances the forbidden distances
+	 * @return the rule
+	 */
+	static TransitionRule forbiddenDistances(int... distances) {
+		int[] forbidden = distances.clone();
+		return new TransitionRule() {
+			@Override
+			public int getHistoryLength() {
+				return 1;
+			}
+
+			@Override
+			public double weight(int[] history, int next, int numPoints) {
+				int distance = cyclicDistance(history[0], next, numPoints);
+				for (int d : forbidden) {
+					if (distance == d) {
+						return 0;
+					}
+				}
+				return 1;
+			}
+		};
+	}
+
+	/**
+	 * Returns a rule that forbids some cyclic distances from the previous
+	 * attractor only when the last two selections were the same attractor.
+	 *
+	 * @param distances the distances forbidden after a repeat
+	 * @return the rule
+	 */
+	static TransitionRule forbiddenDistancesAfterRepeat(int... distances) {
+		TransitionRule forbidden = forbiddenDistances(distances);
+		return new TransitionRule() {
+			@Override
+			public int getHistoryLength() {
+				return 2;
+			}
+
+			@Override
+			public double weight(int[] history, int next, int numPoints) {
+				return history[0] == history[1] ? forbidden.weight(history, next, numPoints) : 1;
+			}
+		};
+	}
+
+	/**
+	 * Returns a rule given by a transition matrix.
+	 *
+	 * @param weights weights[previous][next], one row and column per attractor
+	 * @return the rule
+	 */
+	static TransitionRule matrix(double[][] weights) {
+		double[][] matrix = new double[weights.length][];
+		for (int i = 0; i < weights.length; i++) {
+			matrix[i] = weights[i].clone();
+		}
+		return new TransitionRule() {
+			@Override
+			public int getHistoryLength() {
+				return 1;
+			}
+
+			@Override
+			public double weight(int[] history, int next, int numPoints) {
+				if (matrix.length != numPoints || matrix[history[0]].length != numPoints) {
+					throw new IllegalArgumentException("Transition matrix must be " + numPoints + "x" + numPoints);
+				}
+				return matrix[history[0]][next];
+			}
+		};
+	}
+
+	/**
+	 * Returns the distance between two attractor indices going around the
+	 * polygon the shorter way.
+	 *
+	 * @param a         first index
+	 * @param b         second index
+	 * @param numPoints number of attractors
+	 * @return the cyclic distance, from 0 to numPoints / 2
+	 */
+	static int cyclicDistance(int a, int b, int numPoints) {
+		int distance = Math.abs(a - b);
+		return Math.min(distance, numPoints - distance);
+	}
+}
@@ -0,0 +1,271 @@
+package main;
+
+/**
+ * A {@link TransitionRule} compiled into constant-time sampling tables.
+ * <p>
+ * The state of the walk is the history the rule looks at, the last k
+ * selected attractors encoded as a base-n number with the most recent
+ * selection in the lowest digit. For every state the table holds:
+ * <ul>
+ * <li>the attractors the rule allows next</li>
+ * <li>an alias table over their weights (Vose's method) with 16-bit integer
+ * thresholds, unless all weights are equal</li>
+ * <li>the state reached after each selection</li>
+ * </ul>
+ * A step is then one bounded random index, at most one threshold comparison
+ * and two array lookups, whatever the rule.
+ * </p>
+ */
+class TransitionTable {
+	public static final int MAX_STATES = 1 << 16;
+	private static final int THRESHOLD_BITS = 16;
+	private static final int THRESHOLD_ONE = 1 << THRESHOLD_BITS;
+
+	private final int numPoints;
+	private final int[][] successors;
+	private final int[][] thresholds;
+	private final int[][] aliases;
+	private final int[] nextState;
+
+	private TransitionTable(int numPoints, int[][] successors, int[][] thresholds, int[][] aliases,
+			int[] nextState) {
+		this.numPoints = numPoints;
+		this.successors = successors;
+		this.thresholds = thresholds;
+		this.aliases = aliases;
+		this.nextState = nextState;
+	}
+
+	/**
+	 * Compiles a rule for a number of attractors.
+	 *
+	 * @param rule      the rule
+	 * @param numPoints number of attractors
+	 * @return the compiled table
+	 * @throws IllegalArgumentException if the rule's history needs more than
+	 *                                  {@link #MAX_STATES} states or a weight is negative
+	 */
+	public static TransitionTable compile(TransitionRule rule, int numPoints) {
+		int historyLength = rule.getHistoryLength();
+		if (historyLength < 1) {
+			throw new IllegalArgumentException("History length must be at least 1");
+		}
+		long stateCount = 1;
+		for (int i = 0; i < historyLength; i++) {
+			stateCount *= numPoints;
+			if (stateCount > MAX_STATES) {
+				throw new IllegalArgumentException("Rule history of " + historyLength
+					+ " needs more than " + MAX_STATES + " states");
+			}
+		}
+
+		int states = (int) stateCount;
+		int[][] successors = new int[states][];
+		int[][] thresholds = new int[states][];
+		int[][] aliases = new int[states][];
+		int[] nextState = new int[states * numPoints];
+		int[] history = new int[historyLength];
+		double[] weights = new double[numPoints];
+
+		for (int state = 0; state < states; state++) {
+			// Decode the history, most recent selection in the lowest digit
+			int digits = state;
+			for (int i = 0; i < historyLength; i++) {
+				history[i] = digits % numPoints;
+				digits /= numPoints;
+			}
+
+			int count = 0;
+			for (int next = 0; next < numPoints; next++) {
+				double weight = rule.weight(history, next, numPoints);
+				if (!(weight >= 0)) {
+					throw new IllegalArgumentException("Transition weights must be non-negative");
+				}
+				if (weight > 0) {
+					weights[count++] = weight;
+				}
+				nextState[state * numPoints + next] = (int) ((state * (long) numPoints + next) % states);
+			}
+
+			successors[state] = new int[count];
+			for (int next = 0, i = 0; next < numPoints; next++) {
+				if (rule.weight(history, next, numPoints) > 0) {
+					successors[state][i++] = next;
+				}
+			}
+			if (!isUniform(weights, count)) {
+				buildAliasTable(weights, count, successors[state], thresholds, aliases, state);
+			}
+		}
+		return new TransitionTable(numPoints, successors, thresholds, aliases, nextState);
+	}
+
+	private static boolean isUniform(double[] weights, int count) {
+		for (int i = 1; i < count; i++) {
+			if (Math.abs(weights[i] - weights[0]) > 1e-12 * weights[0]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Builds the alias table of one state with Vose's method.
+	 */
+	private static void buildAliasTable(double[] weights, int count, int[] candidates,
+			int[][] thresholds, int[][] aliases, int state) {
+		double total = 0;
+		for (int i = 0; i < count; i++) {
+			total += weights[i];
+		}
+
+		double[] scaled = new double[count];
+		int[] small = new int[count];
+		int[] large = new int[count];
+		int smallCount = 0;
+		int largeCount = 0;
+		for (int i = 0; i < count; i++) {
+			scaled[i] = weights[i] * count / total;
+			if (scaled[i] < 1) {
+				small[smallCount++] = i;
+			} else {
+				large[largeCount++] = i;
+			}
+		}
+
+		int[] threshold = new int[count];
+		int[] alias = new int[count];
+		while (smallCount > 0 && largeCount > 0) {
+			int less = small[--smallCount];
+			int more = large[--largeCount];
+			threshold[less] = (int) Math.round(scaled[less] * THRESHOLD_ONE);
+			alias[less] = candidates[more];
+			scaled[more] = scaled[more] + scaled[less] - 1;
+			if (scaled[more] < 1) {
+				small[smallCount++] = more;
+			} else {
+				large[largeCount++] = more;
+			}
+		}
+		// Whatever is left has probability 1 up to rounding
+		while (largeCount > 0) {
+			int i = large[--largeCount];
+			threshold[i] = THRESHOLD_ONE;
+			alias[i] = candidates[i];
+		}
+		while (smallCount > 0) {
+			int i = small[--smallCount];
+			threshold[i] = THRESHOLD_ONE;
+			alias[i] = candidates[i];
+		}
+
+		thresholds[state] = threshold;
+		aliases[state] = alias;
+	}
+
+	/**
+	 * Returns the number of attractors.
+	 *
+	 * @return the number of attractors
+	 */
+	public int getNumPoints() {
+		return numPoints;
+	}
+
+	/**
+	 * Returns the number of states (n^k for a history of k selections).
+	 *
+	 * @return the number of states
+	 */
+	public int getStateCount() {
+		return successors.length;
+	}
+
+	/**
+	 * Returns true if every state allows every attractor with equal weight,
+	 * that is, the rule does not restrict the game at all.
+	 *
+	 * @return true for an unrestricted table
+	 */
+	public boolean isUnrestricted() {
+		for (int state = 0; state < successors.length; state++) {
+			if (successors[state].length != numPoints || thresholds[state] != null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the attractors allowed in a state.
+	 *
+	 * @param state the current state
+	 * @return the allowed attractors, possibly empty; must not be modified
+	 */
+	public int[] getSuccessors(int state) {
+		return successors[state];
+	}
+
+	/**
+	 * Returns the state reached by selecting an attractor.
+	 *
+	 * @param state the current state
+	 * @param next  the selected attractor
+	 * @return the next state
+	 */
+	public int nextState(int state, int next) {
+		return nextState[state * numPoints + next];
+	}
+
+	/**
+	 * Creates a sampler that walks this table with its own random source.
+	 *
+	 * @param random the random source, owned by the sampler's thread
+	 * @return a new sampler
+	 */
+	public Sampler newSampler(RandomSource random) {
+		return new Sampler(random);
+	}
+
+	/**
+	 * Draws attractors from a {@link TransitionTable}. Not thread-safe; every
+	 * walker has its own sampler.
+	 */
+	class Sampler {
+		private final AttractorIndexSampler[] indices;
+
+		private Sampler(RandomSource random) {
+			indices = new AttractorIndexSampler[successors.length];
+			for (int state = 0; state < successors.length; state++) {
+				int count = successors[state].length;
+				if (count > 0) {
+					// Weighted states also draw the 16-bit alias coin from the same index
+					int bound = thresholds[state] == null ? count : count << THRESHOLD_BITS;
+					indices[state] = new AttractorIndexSampler(random, bound);
+				}
+			}
+		}
+
+		/**
+		 * Draws the next attractor.
+		 *
+		 * @param state the current state
+		 * @return the selected attractor, or -1 if the rule allows none
+		 */
+		public int next(int state) {
+			AttractorIndexSampler sampler = indices[state];
+			if (sampler == null) {
+				return -1;
+			}
+
+			int[] threshold = thresholds[state];
+			if (threshold == null) {
+				return successors[state][sampler.next()];
+			}
+			int draw = sampler.next();
+			int column = draw >>> THRESHOLD_BITS;
+			return (draw & (THRESHOLD_ONE - 1)) < threshold[column]
+				? successors[state][column] : aliases[state][column];
+		}
+	}
+}
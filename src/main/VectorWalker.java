@@ -0,0 +1,167 @@
+package main;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Advances a vector's worth of Chaos Game walkers per step with the Java
+ * Vector API.
+ * <p>
+ * The walker keeps one independent point per lane of the preferred double
+ * vector (4 lanes with AVX2, 8 with AVX-512). Every step draws one attractor
+ * per lane and moves all points toward their attractors with one fused
+ * multiply-add per coordinate. Gathering the attractor coordinates, the grid
+ * bounds check and the plotting stay scalar: the Vector API's indexed loads
+ * and mask extraction are not compiled to single instructions on every
+ * platform, and then allocate on every step.
+ * </p>
+ * <p>
+ * The class needs the {@code jdk.incubator.vector} module at runtime
+ * ({@code --add-modules jdk.incubator.vector}); the engine only creates it
+ * when the module is present and uses {@link ChaosWalker} otherwise.
+ * </p>
+ *
+ * @see ChaosGameEngine#newWalker(RandomSource)
+ */
+class VectorWalker implements Walker {
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	private final double[] attractorX;
+	private final double[] attractorY;
+	private final double ratio;
+	private final TransitionTable transitions;
+	private final TransitionTable.Sampler transitionSampler;
+	private final AttractorIndexSampler attractorSampler;
+	private final int cellWidth;
+	private final int cellHeight;
+	private final AttractorColors attractorColors;
+	private final double[] currentX;
+	private final double[] currentY;
+	private final int[] state;
+	private final int[] selected;
+	private final double[] laneX;
+	private final double[] laneY;
+
+	/**
+	 * Creates the lanes for the engine's current configuration, each starting
+	 * at a random point, and runs every lane through the burn-in without
+	 * plotting.
+	 *
+	 * @param engine the engine providing attractors, ratio and restrictions
+	 * @param random the walker's own random source, shared by its lanes
+	 */
+	VectorWalker(ChaosGameEngine engine, RandomSource random) {
+		this.attractorX = engine.getAttractorX();
+		this.attractorY = engine.getAttractorY();
+		this.ratio = engine.getRatio();
+		this.cellWidth = engine.getCellWidth();
+		this.cellHeight = engine.getCellHeight();
+		this.attractorColors = new AttractorColors(attractorX.length);
+		this.transitions = engine.getTransitionTable();
+		this.transitionSampler = transitions.newSampler(random);
+		// Without restrictions the lanes skip the rule state and draw indices directly
+		this.attractorSampler = transitions.isUnrestricted()
+			? new AttractorIndexSampler(random, attractorX.length) : null;
+
+		int lanes = SPECIES.length();
+		currentX = new double[lanes];
+		currentY = new double[lanes];
+		state = new int[lanes];
+		selected = new int[lanes];
+		laneX = new double[lanes];
+		laneY = new double[lanes];
+
+		// Each lane starts at its own point, so the lanes never walk in step
+		for (int lane = 0; lane < lanes; lane++) {
+			currentX[lane] = random.nextDouble() * cellWidth;
+			currentY[lane] = random.nextDouble() * cellHeight;
+		}
+		// A batch counts points over all lanes, so each lane gets the full burn-in
+		walk(BURN_IN_ITERATIONS * lanes, 0, PlotSink.DISCARD);
+	}
+
+	/**
+	 * Runs a batch of steps. Every step advances all lanes, so it plots up to
+	 * one point per lane; the batch size counts points, rounded up to whole
+	 * steps.
+	 *
+	 * @param iterations   number of points to generate
+	 * @param frameCounter current frame number, used to rotate attractor colors
+	 * @param sink         receives the plotted cells
+	 */
+	@Override
+	public void walk(int iterations, int frameCounter, PlotSink sink) {
+		final int lanes = SPECIES.length();
+		final double[] ax = attractorX;
+		final double[] ay = attractorY;
+		final int[] colors = attractorColors.forFrame(frameCounter);
+		final int[] states = state;
+		final int[] index = selected;
+		final double[] xs = laneX;
+		final double[] ys = laneY;
+		final TransitionTable table = transitions;
+		final TransitionTable.Sampler sampler = transitionSampler;
+		final AttractorIndexSampler attractors = attractorSampler;
+		final DoubleVector r = DoubleVector.broadcast(SPECIES, ratio);
+		final int width = cellWidth;
+		final int height = cellHeight;
+		DoubleVector px = DoubleVector.fromArray(SPECIES, currentX, 0);
+		DoubleVector py = DoubleVector.fromArray(SPECIES, currentY, 0);
+
+		for (int iteration = 0; iteration < iterations; iteration += lanes) {
+			// Select a random attractor per lane among those the rule allows
+			if (attractors != null) {
+				for (int lane = 0; lane < lanes; lane++) {
+					index[lane] = attractors.next();
+				}
+			} else if (!selectRestricted(sampler, table, states, index)) {
+				// The restrictions leave no attractor to move to
+				break;
+			}
+
+			// Gather the attractors through the lane buffers, then move every
+			// lane partway toward its attractor: p + (a - p) * r
+			for (int lane = 0; lane < lanes; lane++) {
+				xs[lane] = ax[index[lane]];
+				ys[lane] = ay[index[lane]];
+			}
+			DoubleVector gx = DoubleVector.fromArray(SPECIES, xs, 0);
+			DoubleVector gy = DoubleVector.fromArray(SPECIES, ys, 0);
+			px = gx.sub(px).fma(r, px);
+			py = gy.sub(py).fma(r, py);
+
+			// Plot the lanes whose cell lies on the grid; casts truncate toward zero
+			px.intoArray(xs, 0);
+			py.intoArray(ys, 0);
+			for (int lane = 0; lane < lanes; lane++) {
+				double x = xs[lane];
+				double y = ys[lane];
+				if (x > -1 && x < width && y > -1 && y < height) {
+					sink.plot((int) x, (int) y, colors[index[lane]]);
+				}
+			}
+		}
+
+		px.intoArray(currentX, 0);
+		py.intoArray(currentY, 0);
+	}
+
+	/**
+	 * Selects the next attractor of every lane through the rule and advances
+	 * the lanes' rule states.
+	 *
+	 * @return false if a lane reached a state where the rule allows no attractor
+	 */
+	private static boolean selectRestricted(TransitionTable.Sampler sampler, TransitionTable table,
+			int[] states, int[] index) {
+		for (int lane = 0; lane < states.length; lane++) {
+			int next = sampler.next(states[lane]);
+			if (next < 0) {
+				return false;
+			}
+			index[lane] = next;
+			states[lane] = table.nextState(states[lane], next);
+		}
+		return true;
+	}
+}
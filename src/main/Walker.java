@@ -0,0 +1,38 @@
+package main;
+
+/**
+ * Generates Chaos Game points in batches.
+ * <p>
+ * A walker owns all of its mutable state, including its random source, so
+ * several walkers can run on different threads at the same time.
+ * </p>
+ * <p>
+ * Every map of the game is {@code p -> s p + r a} with {@code s = 1 - r}, so
+ * a sequence of selections, an address, maps the whole fractal to a copy
+ * scaled by a power of {@code s} and translated by a constant that depends
+ * only on the address. {@link TileWalker} and {@link AddressWalker} build
+ * their points from such precomputed translations. In the unrestricted game
+ * all addresses of a length are equally likely; with a
+ * {@link TransitionRule} they are not, so those two walkers require
+ * {@link TransitionTable#isUnrestricted()}.
+ * </p>
+ *
+ * @see ChaosGameEngine#newWalker(RandomSource)
+ */
+interface Walker {
+	/**
+	 * Iterations a walker runs without plotting after starting at a random
+	 * point, enough for any start to be pulled within a fraction of a cell
+	 * of the fractal.
+	 */
+	int BURN_IN_ITERATIONS = 64;
+
+	/**
+	 * Runs a batch of iterations.
+	 *
+	 * @param iterations   number of iterations to run
+	 * @param frameCounter current frame number, used to rotate attractor colors
+	 * @param sink         receives the plotted cells
+	 */
+	void walk(int iterations, int frameCounter, PlotSink sink);
+}
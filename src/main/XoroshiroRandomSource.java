@@ -0,0 +1,55 @@
+package main;
+
+/**
+ * xoroshiro128++ random source.
+ * <p>
+ * Two longs of state and a handful of shifts, rotations and additions per
+ * draw, with no atomic operations. The state is seeded through SplitMix64 so
+ * that nearby seeds produce unrelated streams.
+ * </p>
+ */
+class XoroshiroRandomSource implements RandomSource {
+	private long s0;
+	private long s1;
+
+	/**
+	 * Creates a source from a seed.
+	 *
+	 * @param seed any value
+	 */
+	public XoroshiroRandomSource(long seed) {
+		s0 = splitMix64(seed);
+		s1 = splitMix64(seed + 0x9E3779B97F4A7C15L);
+		if ((s0 | s1) == 0) {
+			// The all-zero state is the only invalid one
+			s1 = 1;
+		}
+	}
+
+	/**
+	 * SplitMix64 finalizer, used to expand seeds.
+	 */
+	private static long splitMix64(long z) {
+		z += 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	@Override
+	public long nextLong() {
+		final long t0 = s0;
+		long t1 = s1;
+		final long result = Long.rotateLeft(t0 + t1, 17) + t0;
+
+		t1 ^= t0;
+		s0 = Long.rotateLeft(t0, 49) ^ t1 ^ (t1 << 21);
+		s1 = Long.rotateLeft(t1, 28);
+		return result;
+	}
+
+	@Override
+	public RandomSource split() {
+		return new XoroshiroRandomSource(nextLong());
+	}
+}
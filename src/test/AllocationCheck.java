@@ -0,0 +1,88 @@
+package main;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Checks that the Chaos Game hot loop does not allocate in steady state.
+ * <p>
+ * Every walker the engine can select, and the {@link TileWalker} of the
+ * partitioned background generator, runs warm-up batches, so the loop is
+ * compiled, and then measured batches that plot into the engine's own cell
+ * data. The vector walker is only checked when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}. The allocated bytes of the
+ * current thread, as reported by
+ * {@link com.sun.management.ThreadMXBean}, must not grow by more than the
+ * counter calls themselves cost, which is zero bytes per iteration.
+ * </p>
+ */
+class AllocationCheck {
+	// Warm-up runs in many batches, as callers do, so the walk is compiled as a whole method
+	private static final int BATCH_SIZE = 100_000;
+	private static final int WARMUP_BATCHES = 100;
+	private static final int MEASURED_BATCHES = 40;
+	private static final int MEASURED_ITERATIONS = MEASURED_BATCHES * BATCH_SIZE;
+	// The two counter calls may allocate a few hundred bytes themselves
+	private static final long COUNTER_OVERHEAD_BYTES = 4096;
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args ignored
+	 * @throws AssertionError if a walker allocates per iteration
+	 */
+	public static void main(String[] args) {
+		com.sun.management.ThreadMXBean threads =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			throw new AssertionError("Thread allocation counters are not supported by this JVM");
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		check(threads, "fixed point, 3 attractors", engine(3, false, false, false));
+		check(threads, "double, 5 attractors", engine(5, false, false, false));
+		check(threads, "double, 5 attractors without repeats", engine(5, true, false, false));
+		check(threads, "address sampling, 3 attractors", engine(3, false, true, false));
+		if (ChaosGameEngine.isVectorApiAvailable()) {
+			check(threads, "vector lanes, 3 attractors", engine(3, false, false, true));
+			check(threads, "vector lanes, 5 attractors without repeats", engine(5, true, false, true));
+		} else {
+			System.out.println("SKIP vector lanes: jdk.incubator.vector is not available");
+		}
+
+		ChaosGameEngine tiled = engine(3, false, false, false);
+		TileWalker tile = new TileWalker(tiled, new XoroshiroRandomSource(1), 0, tiled.getCellHeight() / 2);
+		check(threads, "tile, 3 attractors", tile, tiled);
+	}
+
+	private static ChaosGameEngine engine(int attractors, boolean noRepeat, boolean independent, boolean vector) {
+		ChaosGameEngine engine = new ChaosGameEngine(1000, 1000);
+		engine.attractorNumberOfPoints = attractors;
+		engine.doNotAllowRepeatPoint = noRepeat;
+		engine.independentSampling = independent;
+		engine.vectorLanes = vector;
+		engine.initialize();
+		return engine;
+	}
+
+	private static void check(com.sun.management.ThreadMXBean threads, String name, ChaosGameEngine engine) {
+		check(threads, name, engine.newWalker(new XoroshiroRandomSource(1)), engine);
+	}
+
+	private static void check(com.sun.management.ThreadMXBean threads, String name, Walker walker, PlotSink sink) {
+		for (int i = 0; i < WARMUP_BATCHES; i++) {
+			walker.walk(BATCH_SIZE, 0, sink);
+		}
+
+		long before = threads.getCurrentThreadAllocatedBytes();
+		for (int i = 0; i < MEASURED_BATCHES; i++) {
+			walker.walk(BATCH_SIZE, 0, sink);
+		}
+		long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+		if (allocated > COUNTER_OVERHEAD_BYTES) {
+			throw new AssertionError(name + ": " + allocated + " bytes allocated in "
+				+ MEASURED_ITERATIONS + " iterations");
+		}
+		System.out.println("OK " + name + ": " + allocated + " bytes in " + MEASURED_ITERATIONS + " iterations");
+	}
+}
@@ -0,0 +1,76 @@
+package main;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks that the {@link ExactRenderer} draws the complete fractal.
+ * <p>
+ * Every cell a long random run of the Chaos Game reaches must also be drawn
+ * by the exact render, and the parallel render must produce the same cells
+ * and colors as the sequential one. The exact render must cover the same
+ * cells as a render refined 2^{@value #REFERENCE_EXTRA_BITS} times finer, so
+ * it draws no halo around the fractal. It may still draw a few more cells
+ * than the run, whose points would only land there after many more
+ * iterations; their count is reported.
+ * </p>
+ */
+class ExactCoverageCheck {
+	private static final int SIZE = 1000;
+	private static final int REFERENCE_EXTRA_BITS = 8;
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args ignored
+	 * @throws AssertionError if the exact render misses or adds a cell, or depends on the thread count
+	 */
+	public static void main(String[] args) {
+		check("triangle", 3, false, 100_000_000);
+		check("pentagon without repeats", 5, true, 30_000_000);
+	}
+
+	private static void check(String name, int attractors, boolean noRepeat, int points) {
+		ChaosGameEngine engine = new ChaosGameEngine(SIZE, SIZE);
+		engine.attractorNumberOfPoints = attractors;
+		engine.doNotAllowRepeatPoint = noRepeat;
+		engine.initialize();
+
+		ExactRenderer renderer = new ExactRenderer(engine);
+		CellStorage sequential = new ByteCellStorage(SIZE, SIZE);
+		renderer.render(0, sequential::set);
+		CellStorage parallel = new ByteCellStorage(SIZE, SIZE);
+		renderer.renderParallel(0, parallel, ForkJoinPool.commonPool());
+		CellStorage reference = new ByteCellStorage(SIZE, SIZE);
+		new ExactRenderer(engine, ExactRenderer.CUTOFF_BITS + REFERENCE_EXTRA_BITS).render(0, reference::set);
+
+		engine.chaosGameIteration(points, 0);
+		CellStorage sampled = engine.getCellStorage();
+
+		int exactCells = 0;
+		int extraCells = 0;
+		for (int y = 0; y < SIZE; y++) {
+			for (int x = 0; x < SIZE; x++) {
+				if (sequential.get(x, y) != parallel.get(x, y)) {
+					throw new AssertionError(name + ": parallel render differs at " + x + ", " + y);
+				}
+				boolean exact = sequential.get(x, y) != 0;
+				boolean reached = sampled.get(x, y) != 0;
+				if (exact != (reference.get(x, y) != 0)) {
+					throw new AssertionError(name + ": cell " + x + ", " + y + (exact ? " drawn outside" : " missing from")
+						+ " the finer reference render");
+				}
+				if (reached && !exact) {
+					throw new AssertionError(name + ": exact render misses cell " + x + ", " + y);
+				}
+				if (exact) {
+					exactCells++;
+					if (!reached) {
+						extraCells++;
+					}
+				}
+			}
+		}
+		System.out.println("OK " + name + ": " + exactCells + " cells, " + extraCells
+			+ " not reached by " + points + " random points");
+	}
+}
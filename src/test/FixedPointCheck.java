@@ -0,0 +1,72 @@
+package main;
+
+/**
+ * Checks that {@link FixedPointWalker} plots the same cells as
+ * {@link ChaosWalker}.
+ * <p>
+ * Both walkers are created from random sources with the same seed, so they
+ * select the same attractors in the same order; every plotted point must
+ * then land in the same cell with the same color. The check covers the
+ * dyadic-ratio configurations the engine runs on fixed point, with and
+ * without restrictions.
+ * </p>
+ */
+class FixedPointCheck {
+	private static final int SIZE = 1000;
+	private static final int POINTS = 1_000_000;
+	private static final long SEED = 1234;
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args ignored
+	 * @throws AssertionError if the walkers plot different cells
+	 */
+	public static void main(String[] args) {
+		check("triangle", 3, false);
+		check("square", 4, false);
+		check("square without repeats", 4, true);
+	}
+
+	private static void check(String name, int attractors, boolean noRepeat) {
+		ChaosGameEngine engine = new ChaosGameEngine(SIZE, SIZE);
+		engine.attractorNumberOfPoints = attractors;
+		engine.doNotAllowRepeatPoint = noRepeat;
+		engine.initialize();
+		if (!FixedPointWalker.supports(engine)) {
+			throw new AssertionError(name + ": ratio " + engine.getRatio() + " does not run on fixed point");
+		}
+
+		Recorder doubles = new Recorder();
+		new ChaosWalker(engine, new XoroshiroRandomSource(SEED)).walk(POINTS, 0, doubles);
+		Recorder fixed = new Recorder();
+		new FixedPointWalker(engine, new XoroshiroRandomSource(SEED)).walk(POINTS, 0, fixed);
+
+		if (doubles.count != fixed.count) {
+			throw new AssertionError(name + ": " + doubles.count + " points on doubles, " + fixed.count + " on fixed point");
+		}
+		for (int i = 0; i < doubles.count; i++) {
+			if (doubles.cells[i] != fixed.cells[i] || doubles.colors[i] != fixed.colors[i]) {
+				throw new AssertionError(name + ": point " + i + " plotted at cell " + fixed.cells[i]
+					+ " instead of " + doubles.cells[i]);
+			}
+		}
+		System.out.println("OK " + name + ": " + doubles.count + " identical points");
+	}
+
+	/**
+	 * Records the plotted cells in order.
+	 */
+	private static class Recorder implements PlotSink {
+		final int[] cells = new int[POINTS];
+		final int[] colors = new int[POINTS];
+		int count;
+
+		@Override
+		public void plot(int x, int y, int color) {
+			cells[count] = y * SIZE + x;
+			colors[count] = color;
+			count++;
+		}
+	}
+}
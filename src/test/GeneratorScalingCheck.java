@@ -0,0 +1,114 @@
+package main;
+
+/**
+ * Measures how the {@link BackgroundGenerator} scales with its walker count
+ * and checks that merging the private buffers loses no point.
+ * <p>
+ * The generator runs for a fixed time with 1, 2, 4, ... walkers up to the
+ * number of available cores, while this thread drains it once per frame as
+ * the application does. The points per second of every walker count are
+ * reported; as long as there are at least as many cores as walkers, each
+ * walker must keep at least half the single-walker throughput. Walker counts
+ * above the core count are only reported. In density mode, every point
+ * drained must then be found in the hit counts as soon as pausing the
+ * workers returns, since they merge their buffers before parking.
+ * </p>
+ */
+class GeneratorScalingCheck {
+	private static final int SIZE = 1000;
+	private static final long WARMUP_MILLIS = 500;
+	private static final long MEASURED_MILLIS = 2000;
+	private static final long FRAME_MILLIS = 16;
+	private static final double MIN_EFFICIENCY = 0.5;
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args ignored
+	 * @throws AssertionError if throughput does not scale or points are lost
+	 * @throws InterruptedException if interrupted while waiting for the workers
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.println(cores + " available cores");
+
+		double single = 0;
+		for (int walkers = 1; walkers <= Math.max(2, cores); walkers *= 2) {
+			double rate = measure(walkers);
+			if (walkers == 1) {
+				single = rate;
+			}
+			double efficiency = rate / (walkers * single);
+			System.out.printf("%s %d walkers: %.1f M points/s, %.0f%% of linear%n",
+				walkers <= cores ? "OK" : "--", walkers, rate / 1e6, efficiency * 100);
+			if (walkers <= cores && efficiency < MIN_EFFICIENCY) {
+				throw new AssertionError(walkers + " walkers reach only " + Math.round(efficiency * 100)
+					+ "% of linear scaling on " + cores + " cores");
+			}
+		}
+
+		checkDensityMerge(Math.max(2, cores));
+	}
+
+	private static double measure(int walkers) throws InterruptedException {
+		ChaosGameEngine engine = new ChaosGameEngine(SIZE, SIZE);
+		BackgroundGenerator generator = new BackgroundGenerator(engine);
+		generator.setWalkerCount(walkers);
+		generator.start();
+		drainFor(engine, generator, WARMUP_MILLIS);
+		long start = System.nanoTime();
+		long points = drainFor(engine, generator, MEASURED_MILLIS);
+		double rate = points * 1e9 / (System.nanoTime() - start);
+		generator.stop();
+		return rate;
+	}
+
+	private static void checkDensityMerge(int walkers) throws InterruptedException {
+		ChaosGameEngine engine = new ChaosGameEngine(SIZE, SIZE);
+		engine.densityMode = true;
+		engine.initialize();
+		BackgroundGenerator generator = new BackgroundGenerator(engine);
+		generator.setWalkerCount(walkers);
+		generator.start();
+		long points = drainFor(engine, generator, MEASURED_MILLIS);
+		// Pausing returns once every worker has merged what it still buffers and parked
+		generator.setPaused(true);
+		points += generator.drain();
+		generator.stop();
+
+		CellStorage density = engine.getDensityStorage();
+		long hits = 0;
+		int maxDensity = 0;
+		for (int y = 0; y < SIZE; y++) {
+			for (int x = 0; x < SIZE; x++) {
+				hits += density.get(x, y);
+				maxDensity = Math.max(maxDensity, density.get(x, y));
+			}
+		}
+		if (hits != points) {
+			throw new AssertionError(walkers + " walkers drained " + points + " points but stored " + hits + " hits");
+		}
+		if (engine.getMaxDensity() != maxDensity) {
+			throw new AssertionError("Maximum density " + engine.getMaxDensity() + ", stored " + maxDensity);
+		}
+		System.out.println("OK density merge with " + walkers + " walkers: " + hits + " hits");
+	}
+
+	/**
+	 * Drains the generator once per frame for a while, as the application
+	 * does.
+	 *
+	 * @return the number of points drained
+	 */
+	private static long drainFor(ChaosGameEngine engine, BackgroundGenerator generator, long millis)
+			throws InterruptedException {
+		long points = 0;
+		long end = System.nanoTime() + millis * 1_000_000;
+		while (System.nanoTime() < end) {
+			Thread.sleep(FRAME_MILLIS);
+			points += generator.drain();
+			engine.getDirtyRegion().clear();
+		}
+		return points;
+	}
+}
@@ -0,0 +1,103 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Checks the compiled {@link TransitionTable} against the rules it comes
+ * from.
+ * <p>
+ * A weighted transition matrix exercises the alias tables and the 16-bit
+ * coin packed into each sampled index: the sampled successor frequencies of
+ * every state must match the matrix row. A rule over the last two
+ * selections must give each of the n^2 states the successors the rule
+ * allows, and lead to the state holding the new history.
+ * </p>
+ */
+class TransitionTableCheck {
+	private static final int SAMPLES_PER_STATE = 2_000_000;
+	// About six standard deviations of a frequency estimated from the samples
+	private static final double FREQUENCY_TOLERANCE = 6 * 0.5 / Math.sqrt(SAMPLES_PER_STATE);
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args ignored
+	 * @throws AssertionError if a table does not match its rule
+	 */
+	public static void main(String[] args) {
+		checkWeightedFrequencies();
+		checkTwoSelectionHistory();
+	}
+
+	private static void checkWeightedFrequencies() {
+		double[][] weights = {
+			{ 1, 2, 3, 0 },
+			{ 0, 1, 1, 1 },
+			{ 5, 0, 1, 0.25 },
+			{ 1, 1, 1, 1 },
+		};
+		int numPoints = weights.length;
+		TransitionTable table = TransitionTable.compile(TransitionRule.matrix(weights), numPoints);
+		TransitionTable.Sampler sampler = table.newSampler(new XoroshiroRandomSource(42));
+
+		for (int state = 0; state < numPoints; state++) {
+			long[] counts = new long[numPoints];
+			for (int i = 0; i < SAMPLES_PER_STATE; i++) {
+				counts[sampler.next(state)]++;
+			}
+
+			double total = Arrays.stream(weights[state]).sum();
+			for (int next = 0; next < numPoints; next++) {
+				double expected = weights[state][next] / total;
+				double measured = (double) counts[next] / SAMPLES_PER_STATE;
+				if (weights[state][next] == 0 ? counts[next] != 0 : Math.abs(measured - expected) > FREQUENCY_TOLERANCE) {
+					throw new AssertionError("State " + state + " selected " + next + " with frequency "
+						+ measured + ", expected " + expected);
+				}
+			}
+			System.out.println("OK matrix row " + state + ": " + Arrays.toString(counts));
+		}
+	}
+
+	private static void checkTwoSelectionHistory() {
+		int numPoints = 4;
+		// No repeat after a repeat, and never the opposite corner
+		TransitionRule rule = TransitionRule.forbiddenDistancesAfterRepeat(0)
+			.and(TransitionRule.forbiddenDistances(2));
+		TransitionTable table = TransitionTable.compile(rule, numPoints);
+		if (table.getStateCount() != numPoints * numPoints) {
+			throw new AssertionError("Expected " + numPoints * numPoints + " states, got " + table.getStateCount());
+		}
+
+		for (int previous = 0; previous < numPoints; previous++) {
+			for (int last = 0; last < numPoints; last++) {
+				// The most recent selection is the lowest digit
+				int state = previous * numPoints + last;
+				int[] expected = new int[numPoints];
+				int count = 0;
+				for (int next = 0; next < numPoints; next++) {
+					int distance = TransitionRule.cyclicDistance(last, next, numPoints);
+					if (distance != 2 && !(previous == last && distance == 0)) {
+						expected[count++] = next;
+					}
+				}
+				expected = Arrays.copyOf(expected, count);
+
+				if (!Arrays.equals(table.getSuccessors(state), expected)) {
+					throw new AssertionError("History " + previous + ", " + last + " allows "
+						+ Arrays.toString(table.getSuccessors(state)) + ", expected " + Arrays.toString(expected));
+				}
+				for (int next : expected) {
+					if (table.nextState(state, next) != last * numPoints + next) {
+						throw new AssertionError("History " + previous + ", " + last + " then " + next
+							+ " leads to state " + table.nextState(state, next));
+					}
+				}
+			}
+		}
+		if (table.isUnrestricted()) {
+			throw new AssertionError("A restricting rule compiled to an unrestricted table");
+		}
+		System.out.println("OK two-selection history: successors and next states of " + table.getStateCount() + " states");
+	}
+}